@@ -0,0 +1,508 @@
+package io.github.jebl01.bonjava;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+public class AsyncRetry {
+
+    public static <T, R> Function<T, CompletableFuture<R>> withRetries(final Function<T, CompletableFuture<R>> f,
+                                                                       final Predicate<R> predicate,
+                                                                       int retries,
+                                                                       long millisecWait,
+                                                                       double backingOffMultiplier,
+                                                                       final ScheduledExecutorService scheduler) {
+        return withRetries(
+                f,
+                predicate,
+                retries,
+                BackoffPolicy.exponential(millisecWait, backingOffMultiplier),
+                scheduler);
+    }
+
+    public static <T, L, R> Function<T, CompletableFuture<Either<L, R>>> withRetries(final Function<T, CompletableFuture<R>> f,
+                                                                                     final Predicate<R> predicate,
+                                                                                     final Function<Exception, L> errorMapper,
+                                                                                     int retries,
+                                                                                     long millisecWait,
+                                                                                     double backingOffMultiplier,
+                                                                                     final ScheduledExecutorService scheduler) {
+        return withRetries(
+                f,
+                predicate,
+                errorMapper,
+                retries,
+                BackoffPolicy.exponential(millisecWait, backingOffMultiplier),
+                scheduler);
+    }
+
+    public static <T, L1, L2, R> Function<T, CompletableFuture<Either<L2, R>>> eitherWithRetries(final Function<T, CompletableFuture<Either<L1, R>>> f,
+                                                                                                 final Predicate<R> predicate,
+                                                                                                 final Function<Exception, L2> errorMapper,
+                                                                                                 int retries,
+                                                                                                 long millisecWait,
+                                                                                                 double backingOffMultiplier,
+                                                                                                 final ScheduledExecutorService scheduler) {
+        return eitherWithRetries(
+                f,
+                predicate,
+                errorMapper,
+                retries,
+                BackoffPolicy.exponential(millisecWait, backingOffMultiplier),
+                scheduler);
+    }
+
+    public static <T> Supplier<CompletableFuture<T>> withRetriesSupply(final Supplier<CompletableFuture<T>> f,
+                                                                       final Predicate<T> predicate,
+                                                                       int retries,
+                                                                       long millisecWait,
+                                                                       double backingOffMultiplier,
+                                                                       final ScheduledExecutorService scheduler) {
+        return withRetriesSupply(
+                f,
+                predicate,
+                retries,
+                BackoffPolicy.exponential(millisecWait, backingOffMultiplier),
+                scheduler);
+    }
+
+    public static <L, R> Supplier<CompletableFuture<Either<L, R>>> withRetriesSupply(final Supplier<CompletableFuture<R>> f,
+                                                                                     final Predicate<R> predicate,
+                                                                                     final Function<Exception, L> errorMapper,
+                                                                                     int retries,
+                                                                                     long millisecWait,
+                                                                                     double backingOffMultiplier,
+                                                                                     final ScheduledExecutorService scheduler) {
+        return withRetriesSupply(
+                f,
+                predicate,
+                errorMapper,
+                retries,
+                BackoffPolicy.exponential(millisecWait, backingOffMultiplier),
+                scheduler);
+    }
+
+    public static <L1, L2, R> Supplier<CompletableFuture<Either<L2, R>>> eitherWithRetriesSupply(final Supplier<CompletableFuture<Either<L1, R>>> f,
+                                                                                                 final Predicate<R> predicate,
+                                                                                                 final Function<Exception, L2> errorMapper,
+                                                                                                 int retries,
+                                                                                                 long millisecWait,
+                                                                                                 double backingOffMultiplier,
+                                                                                                 final ScheduledExecutorService scheduler) {
+        return eitherWithRetriesSupply(
+                f,
+                predicate,
+                errorMapper,
+                retries,
+                BackoffPolicy.exponential(millisecWait, backingOffMultiplier),
+                scheduler);
+    }
+
+    public static <T, R> Function<T, CompletableFuture<R>> withRetries(final Function<T, CompletableFuture<R>> f,
+                                                                       final Predicate<R> predicate,
+                                                                       int retries,
+                                                                       final BackoffPolicy backoff,
+                                                                       final ScheduledExecutorService scheduler) {
+        return withRetries(f, predicate, RetryPolicy.of(retries, backoff), scheduler);
+    }
+
+    public static <T, L, R> Function<T, CompletableFuture<Either<L, R>>> withRetries(final Function<T, CompletableFuture<R>> f,
+                                                                                     final Predicate<R> predicate,
+                                                                                     final Function<Exception, L> errorMapper,
+                                                                                     int retries,
+                                                                                     final BackoffPolicy backoff,
+                                                                                     final ScheduledExecutorService scheduler) {
+        return withRetries(f, predicate, errorMapper, RetryPolicy.of(retries, backoff), scheduler);
+    }
+
+    public static <T, L1, L2, R> Function<T, CompletableFuture<Either<L2, R>>> eitherWithRetries(final Function<T, CompletableFuture<Either<L1, R>>> f,
+                                                                                                 final Predicate<R> predicate,
+                                                                                                 final Function<Exception, L2> errorMapper,
+                                                                                                 int retries,
+                                                                                                 final BackoffPolicy backoff,
+                                                                                                 final ScheduledExecutorService scheduler) {
+        return eitherWithRetries(f, predicate, errorMapper, RetryPolicy.of(retries, backoff), scheduler);
+    }
+
+    public static <T> Supplier<CompletableFuture<T>> withRetriesSupply(final Supplier<CompletableFuture<T>> f,
+                                                                       final Predicate<T> predicate,
+                                                                       int retries,
+                                                                       final BackoffPolicy backoff,
+                                                                       final ScheduledExecutorService scheduler) {
+        return withRetriesSupply(f, predicate, RetryPolicy.of(retries, backoff), scheduler);
+    }
+
+    public static <L, R> Supplier<CompletableFuture<Either<L, R>>> withRetriesSupply(final Supplier<CompletableFuture<R>> f,
+                                                                                     final Predicate<R> predicate,
+                                                                                     final Function<Exception, L> errorMapper,
+                                                                                     int retries,
+                                                                                     final BackoffPolicy backoff,
+                                                                                     final ScheduledExecutorService scheduler) {
+        return withRetriesSupply(f, predicate, errorMapper, RetryPolicy.of(retries, backoff), scheduler);
+    }
+
+    public static <L1, L2, R> Supplier<CompletableFuture<Either<L2, R>>> eitherWithRetriesSupply(final Supplier<CompletableFuture<Either<L1, R>>> f,
+                                                                                                 final Predicate<R> predicate,
+                                                                                                 final Function<Exception, L2> errorMapper,
+                                                                                                 int retries,
+                                                                                                 final BackoffPolicy backoff,
+                                                                                                 final ScheduledExecutorService scheduler) {
+        return eitherWithRetriesSupply(f, predicate, errorMapper, RetryPolicy.of(retries, backoff), scheduler);
+    }
+
+    public static <T, R> Function<T, CompletableFuture<R>> withRetries(final Function<T, CompletableFuture<R>> f,
+                                                                       final Predicate<R> predicate,
+                                                                       final RetryPolicy policy,
+                                                                       final ScheduledExecutorService scheduler) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(predicate);
+        Objects.requireNonNull(policy);
+        Objects.requireNonNull(scheduler);
+        return t -> retry(
+                () -> f.apply(t),
+                predicate,
+                e -> {
+                    SneakyThrow.<RuntimeException>sneakyException(e);
+                    return null;
+                },
+                Function.identity(),
+                policy,
+                scheduler);
+    }
+
+    public static <T, L, R> Function<T, CompletableFuture<Either<L, R>>> withRetries(final Function<T, CompletableFuture<R>> f,
+                                                                                     final Predicate<R> predicate,
+                                                                                     final Function<Exception, L> errorMapper,
+                                                                                     final RetryPolicy policy,
+                                                                                     final ScheduledExecutorService scheduler) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(predicate);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(policy);
+        Objects.requireNonNull(scheduler);
+        return t -> retry(
+                () -> f.apply(t),
+                predicate,
+                (e) -> Either.left(errorMapper.apply(e)),
+                Either::right,
+                policy,
+                scheduler);
+    }
+
+    public static <T, L1, L2, R> Function<T, CompletableFuture<Either<L2, R>>> eitherWithRetries(final Function<T, CompletableFuture<Either<L1, R>>> f,
+                                                                                                 final Predicate<R> predicate,
+                                                                                                 final Function<Exception, L2> errorMapper,
+                                                                                                 final RetryPolicy policy,
+                                                                                                 final ScheduledExecutorService scheduler) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(predicate);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(policy);
+        Objects.requireNonNull(scheduler);
+        return t -> retryEither(
+                () -> f.apply(t),
+                predicate,
+                errorMapper,
+                policy,
+                scheduler);
+    }
+
+    public static <T> Supplier<CompletableFuture<T>> withRetriesSupply(final Supplier<CompletableFuture<T>> f,
+                                                                       final Predicate<T> predicate,
+                                                                       final RetryPolicy policy,
+                                                                       final ScheduledExecutorService scheduler) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(predicate);
+        Objects.requireNonNull(policy);
+        Objects.requireNonNull(scheduler);
+        return () -> retry(
+                f,
+                predicate,
+                e -> {
+                    SneakyThrow.<RuntimeException>sneakyException(e);
+                    return null;
+                },
+                Function.identity(),
+                policy,
+                scheduler);
+    }
+
+    public static <L, R> Supplier<CompletableFuture<Either<L, R>>> withRetriesSupply(final Supplier<CompletableFuture<R>> f,
+                                                                                     final Predicate<R> predicate,
+                                                                                     final Function<Exception, L> errorMapper,
+                                                                                     final RetryPolicy policy,
+                                                                                     final ScheduledExecutorService scheduler) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(predicate);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(policy);
+        Objects.requireNonNull(scheduler);
+        return () -> retry(
+                f,
+                predicate,
+                (e) -> Either.left(errorMapper.apply(e)),
+                Either::right,
+                policy,
+                scheduler);
+    }
+
+    public static <L1, L2, R> Supplier<CompletableFuture<Either<L2, R>>> eitherWithRetriesSupply(final Supplier<CompletableFuture<Either<L1, R>>> f,
+                                                                                                 final Predicate<R> predicate,
+                                                                                                 final Function<Exception, L2> errorMapper,
+                                                                                                 final RetryPolicy policy,
+                                                                                                 final ScheduledExecutorService scheduler) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(predicate);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(policy);
+        Objects.requireNonNull(scheduler);
+        return () -> retryEither(
+                f,
+                predicate,
+                errorMapper,
+                policy,
+                scheduler);
+    }
+
+    private static <L1, L2, R> CompletableFuture<Either<L2, R>> retryEither(Supplier<CompletableFuture<Either<L1, R>>> f,
+                                                                            final Predicate<R> predicate,
+                                                                            final Function<Exception, L2> errorMapper,
+                                                                            final RetryPolicy policy,
+                                                                            final ScheduledExecutorService scheduler) {
+        return retry(
+                f,
+                result -> result.isRight() && predicate.test(result.rightValue()),
+                e -> Either.left(errorMapper.apply(e)),
+                RetryPolicy::retypeRight,
+                policy,
+                scheduler);
+    }
+
+    private static <T, R> CompletableFuture<T> retry(Supplier<CompletableFuture<R>> f,
+                                                     final Predicate<R> predicate,
+                                                     final Function<Exception, T> errorMapper,
+                                                     final Function<R, T> resultMapper,
+                                                     final RetryPolicy policy,
+                                                     final ScheduledExecutorService scheduler) {
+        final CompletableFuture<T> promise = new CompletableFuture<>();
+        if(policy.retries == 0) {
+            final Retry.RetryException reason = policy.exhausted();
+            policy.onGiveUp(0, reason, policy.now());
+            complete(promise, () -> errorMapper.apply(reason));
+        }
+        else {
+            new Attempts<>(f, predicate, errorMapper, resultMapper, policy, scheduler, promise).attempt(0, 0);
+        }
+        return promise;
+    }
+
+    private static class Attempts<T, R> {
+        private final Supplier<CompletableFuture<R>> f;
+        private final Predicate<R> predicate;
+        private final Function<Exception, T> errorMapper;
+        private final Function<R, T> resultMapper;
+        private final RetryPolicy policy;
+        private final ScheduledExecutorService scheduler;
+        private final CompletableFuture<T> promise;
+        private final Deadline deadline;
+        private final long start;
+        private final CancellationToken token;
+        private final CancellationToken.Registration registration;
+        //set once, by whichever of success, give up or cancellation comes first
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile int attempts;
+        private volatile Future<?> pending;
+
+        private Attempts(Supplier<CompletableFuture<R>> f,
+                         Predicate<R> predicate,
+                         Function<Exception, T> errorMapper,
+                         Function<R, T> resultMapper,
+                         RetryPolicy policy,
+                         ScheduledExecutorService scheduler,
+                         CompletableFuture<T> promise) {
+            this.f = f;
+            this.predicate = predicate;
+            this.errorMapper = errorMapper;
+            this.resultMapper = resultMapper;
+            this.policy = policy;
+            this.scheduler = scheduler;
+            this.promise = promise;
+            this.deadline = policy.newDeadline();
+            this.start = policy.now();
+            this.token = CancellationToken.currentOrNull();
+            this.registration = token == null ? null : token.onCancel(this::cancel);
+            //the caller completing (e.g. cancelling) the promise stops the retries too
+            promise.whenComplete((r, e) -> finish());
+        }
+
+        private void cancel() {
+            if(giveUp(attempts, RetryPolicy.cancelled(attempts))) {
+                final Future<?> current = pending;
+                if(current != null) {
+                    current.cancel(true);
+                }
+            }
+        }
+
+        /**
+         * @return true if the call wasn't finished already, and now is
+         */
+        private boolean finish() {
+            if(!finished.compareAndSet(false, true)) {
+                return false;
+            }
+            if(registration != null) {
+                registration.close();
+            }
+            return true;
+        }
+
+        private void attempt(int attempt, long previousDelay) {
+            if(finished.get()) {
+                return;
+            }
+            if(token != null && token.isCancelled()) {
+                giveUp(attempt, RetryPolicy.cancelled(attempt));
+                return;
+            }
+            attempts = attempt + 1;
+            final Deadline attemptDeadline = policy.newAttemptDeadline(deadline);
+            final long attemptStart = policy.onAttemptStart(attempt + 1);
+            CompletableFuture<R> result;
+            try {
+                result = Objects.requireNonNull(
+                        CancellationToken.callWith(
+                                token,
+                                () -> attemptDeadline == null ? f.get() : Deadline.callWith(attemptDeadline, f::get)),
+                        "attempt returned null");
+            }
+            catch(Throwable e) {
+                result = new CompletableFuture<>();
+                result.completeExceptionally(e);
+            }
+            if(policy.attemptTimeoutNanos > 0 && !result.isDone()) {
+                result = withTimeout(result, attemptDeadline);
+            }
+            pending = result;
+            result.whenComplete((r, e) -> {
+                if(finished.get()) {
+                    return;
+                }
+                if(e == null) {
+                    try {
+                        if(predicate.test(r)) {
+                            if(finish()) {
+                                policy.onSuccess(attempt + 1, start);
+                                complete(promise, () -> resultMapper.apply(r));
+                            }
+                            return;
+                        }
+                    }
+                    catch(Throwable t) {
+                        e = t;
+                    }
+                }
+                final Throwable cause = unwrap(e);
+                if(cause == null) {
+                    policy.onAttemptRejected(attempt + 1, attemptStart);
+                }
+                else {
+                    policy.onAttemptFailure(attempt + 1, cause, attemptStart);
+                }
+                onFailure(attempt, previousDelay, cause);
+            });
+        }
+
+        private void onFailure(int attempt, long previousDelay, Throwable cause) {
+            final int retries = policy.retries;
+            if(cause != null) {
+                final Retry.RetryException abort = policy.checkRetryable(attempt + 1, cause);
+                if(abort != null) {
+                    giveUp(attempt + 1, abort);
+                    return;
+                }
+            }
+            if(attempt == retries - 1) {
+                giveUp(retries, cause == null
+                        ? policy.exhausted()
+                        : policy.retryException("retried " + retries + " times but failed with exception", cause));
+                return;
+            }
+            try {
+                final long millisecWait = policy.backoff.delay(attempt + 1, previousDelay);
+                final Retry.RetryException stop = policy.checkRetry(attempt + 1, millisecWait, deadline, cause);
+                if(stop != null) {
+                    giveUp(attempt + 1, stop);
+                    return;
+                }
+                policy.onBackoff(attempt + 1, millisecWait);
+                pending = scheduler.schedule(() -> attempt(attempt + 1, millisecWait), millisecWait, TimeUnit.MILLISECONDS);
+                if(finished.get()) {
+                    //cancelled while scheduling
+                    pending.cancel(false);
+                }
+            }
+            catch(Throwable t) {
+                giveUp(attempt + 1, t instanceof Exception ? (Exception) t : policy.retryException(
+                        "failed to schedule retry", t));
+            }
+        }
+
+        /**
+         * @return false, without doing anything, if the call was already finished
+         */
+        private boolean giveUp(int attempts, Exception reason) {
+            if(!finish()) {
+                return false;
+            }
+            policy.onGiveUp(attempts, reason, start);
+            complete(promise, () -> errorMapper.apply(reason));
+            return true;
+        }
+
+        private CompletableFuture<R> withTimeout(CompletableFuture<R> result, Deadline attemptDeadline) {
+            final CompletableFuture<R> timed = new CompletableFuture<>();
+            final ScheduledFuture<?> timeout = scheduler.schedule(() -> {
+                if(timed.completeExceptionally(new TimeoutException("attempt timed out"))) {
+                    result.cancel(true);
+                }
+            }, attemptDeadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+            result.whenComplete((r, e) -> {
+                timeout.cancel(false);
+                if(e == null) {
+                    timed.complete(r);
+                }
+                else {
+                    timed.completeExceptionally(e);
+                }
+            });
+            return timed;
+        }
+    }
+
+    private static <T> void complete(CompletableFuture<T> promise, Supplier<T> value) {
+        try {
+            promise.complete(value.get());
+        }
+        catch(Throwable e) {
+            promise.completeExceptionally(e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        if((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            return e.getCause();
+        }
+        return e;
+    }
+}
@@ -0,0 +1,153 @@
+package io.github.jebl01.bonjava;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+@FunctionalInterface
+public interface BackoffPolicy {
+
+    /**
+     * @param retry         the (1 based) number of the retry about to be made
+     * @param previousDelay the delay returned for the previous retry, 0 before the first retry
+     * @return milliseconds to wait before making the retry
+     */
+    long delay(int retry, long previousDelay);
+
+    default BackoffPolicy withMaxDelay(long maxDelay) {
+        if(maxDelay < 0) {
+            throw new IllegalArgumentException("maxDelay");
+        }
+        return (retry, previousDelay) -> Math.min(maxDelay, delay(retry, previousDelay));
+    }
+
+    static BackoffPolicy constant(long millisecWait) {
+        if(millisecWait < 0) {
+            throw new IllegalArgumentException("millisecWait");
+        }
+        return (retry, previousDelay) -> millisecWait;
+    }
+
+    static BackoffPolicy linear(long millisecWait, long millisecIncrement) {
+        if(millisecWait < 0) {
+            throw new IllegalArgumentException("millisecWait");
+        }
+        if(millisecIncrement < 0) {
+            throw new IllegalArgumentException("millisecIncrement");
+        }
+        return (retry, previousDelay) -> retry == 1 ? millisecWait : Backoffs.saturatedAdd(previousDelay, millisecIncrement);
+    }
+
+    static BackoffPolicy exponential(long millisecWait, double backingOffMultiplier) {
+        if(millisecWait < 0) {
+            throw new IllegalArgumentException("millisecWait");
+        }
+        if(backingOffMultiplier < 0) {
+            throw new IllegalArgumentException("backingOffMultiplier");
+        }
+        return (retry, previousDelay) -> retry == 1 ? millisecWait : (long) (previousDelay * backingOffMultiplier);
+    }
+
+    /**
+     * Waits a random time between 0 and the (capped) exponential delay.
+     */
+    static BackoffPolicy fullJitter(long millisecWait, double backingOffMultiplier, long maxDelay) {
+        return fullJitter(millisecWait, backingOffMultiplier, maxDelay, Backoffs.THREAD_LOCAL_RANDOM);
+    }
+
+    /**
+     * Like {@link #fullJitter(long, double, long)}, drawing from the given random source (e.g. a seeded one, for
+     * reproducible delays).
+     *
+     * @param random returns uniformly distributed values between 0 (inclusive) and 1 (exclusive)
+     */
+    static BackoffPolicy fullJitter(long millisecWait, double backingOffMultiplier, long maxDelay, DoubleSupplier random) {
+        Backoffs.validateJitterArgs(millisecWait, backingOffMultiplier, maxDelay);
+        Objects.requireNonNull(random);
+        return (retry, previousDelay) -> Backoffs.random(random, 0, Backoffs.exponentialCeiling(millisecWait, backingOffMultiplier, retry, maxDelay));
+    }
+
+    /**
+     * Waits half of the (capped) exponential delay plus a random time between 0 and the other half.
+     */
+    static BackoffPolicy equalJitter(long millisecWait, double backingOffMultiplier, long maxDelay) {
+        return equalJitter(millisecWait, backingOffMultiplier, maxDelay, Backoffs.THREAD_LOCAL_RANDOM);
+    }
+
+    /**
+     * Like {@link #equalJitter(long, double, long)}, drawing from the given random source.
+     *
+     * @param random returns uniformly distributed values between 0 (inclusive) and 1 (exclusive)
+     */
+    static BackoffPolicy equalJitter(long millisecWait, double backingOffMultiplier, long maxDelay, DoubleSupplier random) {
+        Backoffs.validateJitterArgs(millisecWait, backingOffMultiplier, maxDelay);
+        Objects.requireNonNull(random);
+        return (retry, previousDelay) -> {
+            final long ceiling = Backoffs.exponentialCeiling(millisecWait, backingOffMultiplier, retry, maxDelay);
+            final long half = ceiling / 2;
+            return half + Backoffs.random(random, 0, ceiling - half);
+        };
+    }
+
+    /**
+     * Waits a random time between millisecWait and three times the previous delay, capped at maxDelay.
+     */
+    static BackoffPolicy decorrelatedJitter(long millisecWait, long maxDelay) {
+        return decorrelatedJitter(millisecWait, maxDelay, Backoffs.THREAD_LOCAL_RANDOM);
+    }
+
+    /**
+     * Like {@link #decorrelatedJitter(long, long)}, drawing from the given random source.
+     *
+     * @param random returns uniformly distributed values between 0 (inclusive) and 1 (exclusive)
+     */
+    static BackoffPolicy decorrelatedJitter(long millisecWait, long maxDelay, DoubleSupplier random) {
+        Backoffs.validateJitterArgs(millisecWait, 1, maxDelay);
+        Objects.requireNonNull(random);
+        return (retry, previousDelay) -> {
+            final long previous = retry == 1 ? millisecWait : Math.max(previousDelay, millisecWait);
+            return Math.min(maxDelay, Backoffs.random(random, millisecWait, previous > Long.MAX_VALUE / 3 ? Long.MAX_VALUE : previous * 3));
+        };
+    }
+}
+
+final class Backoffs {
+    private Backoffs() {
+    }
+
+    static void validateJitterArgs(long millisecWait, double backingOffMultiplier, long maxDelay) {
+        if(millisecWait < 0) {
+            throw new IllegalArgumentException("millisecWait");
+        }
+        if(backingOffMultiplier < 0) {
+            throw new IllegalArgumentException("backingOffMultiplier");
+        }
+        if(maxDelay < millisecWait) {
+            throw new IllegalArgumentException("maxDelay");
+        }
+    }
+
+    static long exponentialCeiling(long millisecWait, double backingOffMultiplier, int retry, long maxDelay) {
+        final double ceiling = millisecWait * Math.pow(backingOffMultiplier, retry - 1);
+        return ceiling >= maxDelay ? maxDelay : (long) ceiling;
+    }
+
+    static final DoubleSupplier THREAD_LOCAL_RANDOM = () -> ThreadLocalRandom.current().nextDouble();
+
+    /**
+     * @return a value between origin and bound, both inclusive
+     */
+    static long random(DoubleSupplier random, long origin, long bound) {
+        if(bound <= origin) {
+            return origin;
+        }
+        final double value = origin + random.getAsDouble() * ((double) bound - origin + 1);
+        //guards against rounding up, for bounds too large to be represented exactly
+        return value >= bound ? bound : (long) value;
+    }
+
+    static long saturatedAdd(long a, long b) {
+        final long sum = a + b;
+        return sum < a ? Long.MAX_VALUE : sum;
+    }
+}
@@ -0,0 +1,263 @@
+package io.github.jebl01.bonjava;
+
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Isolates a resource by limiting the number of concurrent calls to it. The permits are spread over several
+ * semaphores (stripes), so that callers on different threads mostly don't contend on the same counter; a caller
+ * whose own stripe is exhausted takes a permit from any other stripe. Calls that can't get a permit (within the max
+ * wait, if any) are rejected with a {@link BulkheadFullException}.
+ */
+public final class Bulkhead {
+    private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String name;
+    private final int maxConcurrent;
+    private final long maxWaitNanos;
+    private final int maxWaiting;
+    private final Semaphore[] stripes;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    private Bulkhead(Builder builder) {
+        this.name = builder.name;
+        this.maxConcurrent = builder.maxConcurrent;
+        this.maxWaitNanos = builder.maxWaitNanos;
+        this.maxWaiting = builder.maxWaiting;
+        final int stripeCount = Math.min(maxConcurrent, Runtime.getRuntime().availableProcessors());
+        this.stripes = new Semaphore[stripeCount];
+        for(int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Semaphore(maxConcurrent / stripeCount + (i < maxConcurrent % stripeCount ? 1 : 0));
+        }
+    }
+
+    public static Bulkhead of(String name, int maxConcurrent) {
+        return builder(name, maxConcurrent).build();
+    }
+
+    public static Builder builder(String name, int maxConcurrent) {
+        return new Builder(name, maxConcurrent);
+    }
+
+    public static <T, R> Function<T, R> withBulkhead(final Function<T, R> f, final Bulkhead bulkhead) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(bulkhead);
+        return t -> bulkhead.call(
+                () -> f.apply(t),
+                e -> {
+                    SneakyThrow.<RuntimeException>sneakyException(e);
+                    return null;
+                });
+    }
+
+    public static <T, L, R> Function<T, Either<L, R>> withBulkhead(final Function<T, R> f,
+                                                                   final Function<Exception, L> errorMapper,
+                                                                   final Bulkhead bulkhead) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(bulkhead);
+        return t -> bulkhead.call(
+                () -> Either.right(f.apply(t)),
+                e -> Either.left(errorMapper.apply(e)));
+    }
+
+    public static <T, L, R> Function<T, Either<L, R>> eitherWithBulkhead(final Function<T, Either<L, R>> f,
+                                                                         final Function<Exception, L> errorMapper,
+                                                                         final Bulkhead bulkhead) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(bulkhead);
+        return t -> bulkhead.call(
+                () -> f.apply(t),
+                e -> Either.left(errorMapper.apply(e)));
+    }
+
+    public static <T> Supplier<T> withBulkheadSupply(final Supplier<T> f, final Bulkhead bulkhead) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(bulkhead);
+        return () -> bulkhead.call(
+                f,
+                e -> {
+                    SneakyThrow.<RuntimeException>sneakyException(e);
+                    return null;
+                });
+    }
+
+    public static <L, R> Supplier<Either<L, R>> withBulkheadSupply(final Supplier<R> f,
+                                                                   final Function<Exception, L> errorMapper,
+                                                                   final Bulkhead bulkhead) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(bulkhead);
+        return () -> bulkhead.call(
+                () -> Either.right(f.get()),
+                e -> Either.left(errorMapper.apply(e)));
+    }
+
+    public static <L, R> Supplier<Either<L, R>> eitherWithBulkheadSupply(final Supplier<Either<L, R>> f,
+                                                                         final Function<Exception, L> errorMapper,
+                                                                         final Bulkhead bulkhead) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(bulkhead);
+        return () -> bulkhead.call(
+                f,
+                e -> Either.left(errorMapper.apply(e)));
+    }
+
+    public static Runnable withBulkheadRun(final Runnable f,
+                                           final Consumer<Throwable> errorHandler,
+                                           final Bulkhead bulkhead) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(errorHandler);
+        Objects.requireNonNull(bulkhead);
+        return () -> bulkhead.call(
+                () -> {
+                    f.run();
+                    return true;
+                },
+                e -> {
+                    errorHandler.accept(e);
+                    return true;
+                });
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int inFlight() {
+        int available = 0;
+        for(Semaphore stripe : stripes) {
+            available += stripe.availablePermits();
+        }
+        return maxConcurrent - available;
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    private <T> T call(Supplier<T> f, Function<Exception, T> errorMapper) {
+        final int stripe;
+        try {
+            stripe = acquire();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return errorMapper.apply(e);
+        }
+        if(stripe < 0) {
+            rejected.increment();
+            return errorMapper.apply(new BulkheadFullException("bulkhead " + name + " is full"));
+        }
+        try {
+            return f.get();
+        }
+        catch(Exception e) {
+            return errorMapper.apply(e);
+        }
+        finally {
+            stripes[stripe].release();
+        }
+    }
+
+    /**
+     * @return the stripe a permit was taken from, or -1 if none could be had
+     */
+    private int acquire() throws InterruptedException {
+        final int home = (int) (Thread.currentThread().getId() % stripes.length);
+        final int stripe = tryAcquire(home);
+        if(stripe >= 0 || maxWaitNanos == 0) {
+            return stripe;
+        }
+        if(waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            return -1;
+        }
+        try {
+            final long deadline = System.nanoTime() + maxWaitNanos;
+            long remaining = maxWaitNanos;
+            while(remaining > 0) {
+                //waits on the home stripe in short slices, so that permits released to other stripes are found too
+                if(stripes[home].tryAcquire(Math.min(remaining, WAIT_SLICE_NANOS), TimeUnit.NANOSECONDS)) {
+                    return home;
+                }
+                final int other = tryAcquire(home);
+                if(other >= 0) {
+                    return other;
+                }
+                remaining = deadline - System.nanoTime();
+            }
+            return -1;
+        }
+        finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private int tryAcquire(int home) {
+        for(int i = 0; i < stripes.length; i++) {
+            final int stripe = (home + i) % stripes.length;
+            if(stripes[stripe].tryAcquire()) {
+                return stripe;
+            }
+        }
+        return -1;
+    }
+
+    public static class Builder {
+        private final String name;
+        private final int maxConcurrent;
+        private long maxWaitNanos;
+        private int maxWaiting = Integer.MAX_VALUE;
+
+        private Builder(String name, int maxConcurrent) {
+            this.name = Objects.requireNonNull(name);
+            if(maxConcurrent <= 0) {
+                throw new IllegalArgumentException("maxConcurrent");
+            }
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        /**
+         * Calls wait up to the given time for a permit, instead of being rejected right away.
+         */
+        public Builder maxWait(long maxWait, TimeUnit unit) {
+            Objects.requireNonNull(unit);
+            if(maxWait < 0) {
+                throw new IllegalArgumentException("maxWait");
+            }
+            this.maxWaitNanos = unit.toNanos(maxWait);
+            return this;
+        }
+
+        /**
+         * At most the given number of calls wait for a permit at the same time, others are rejected right away.
+         */
+        public Builder maxWaiting(int maxWaiting) {
+            if(maxWaiting < 0) {
+                throw new IllegalArgumentException("maxWaiting");
+            }
+            this.maxWaiting = maxWaiting;
+            return this;
+        }
+
+        public Bulkhead build() {
+            return new Bulkhead(this);
+        }
+    }
+
+    public static class BulkheadFullException extends RuntimeException {
+        public BulkheadFullException(String reason) {
+            super(reason);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package io.github.jebl01.bonjava;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cooperative cancellation of retries. Retry wrappers (sync and async) called through {@link #call(Supplier)} or
+ * {@link #run(Runnable)} check the token before every attempt and give up with a {@link CancellationException} once
+ * it's cancelled, cutting any backoff short. The attempts themselves can check it through {@link #current()}.
+ */
+public final class CancellationToken {
+    private static final ThreadLocal<CancellationToken> CURRENT = new ThreadLocal<>();
+
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+    private final Set<Callback> callbacks = ConcurrentHashMap.newKeySet();
+
+    private CancellationToken() {
+    }
+
+    public static CancellationToken create() {
+        return new CancellationToken();
+    }
+
+    /**
+     * The token of the call currently executing on this thread, if any.
+     */
+    public static Optional<CancellationToken> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    static CancellationToken currentOrNull() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Cancels the token and runs the registered actions. If any of them throws, the others are still run, and the
+     * first exception is rethrown afterwards.
+     */
+    public void cancel() {
+        cancelled.countDown();
+        RuntimeException failure = null;
+        for(Callback callback : callbacks) {
+            try {
+                callback.runOnce();
+            }
+            catch(RuntimeException e) {
+                if(failure == null) {
+                    failure = e;
+                }
+                else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled.getCount() == 0;
+    }
+
+    public void throwIfCancelled() {
+        if(isCancelled()) {
+            throw new CancellationException("cancelled");
+        }
+    }
+
+    /**
+     * Runs the action when the token is cancelled (right away, if it already is). The action is kept until then, or
+     * until the returned registration is closed, which should be done once the action is no longer needed, so that
+     * long-lived tokens don't pile them up.
+     */
+    public Registration onCancel(Runnable action) {
+        final Callback callback = new Callback(Objects.requireNonNull(action));
+        callbacks.add(callback);
+        if(isCancelled()) {
+            callback.runOnce();
+        }
+        return callback;
+    }
+
+    /**
+     * @return the number of actions waiting for the token to be cancelled
+     */
+    int registrations() {
+        return callbacks.size();
+    }
+
+    /**
+     * Calls {@code f} with this token as the current one.
+     */
+    public <T> T call(Supplier<T> f) {
+        Objects.requireNonNull(f);
+        try {
+            return callWith(this, f::get);
+        }
+        catch(Exception e) {
+            SneakyThrow.<RuntimeException>sneakyException(e);
+            return null;
+        }
+    }
+
+    /**
+     * Runs {@code f} with this token as the current one.
+     */
+    public void run(Runnable f) {
+        Objects.requireNonNull(f);
+        call(() -> {
+            f.run();
+            return null;
+        });
+    }
+
+    static <R> R callWith(CancellationToken token, Callable<R> f) throws Exception {
+        final CancellationToken previous = CURRENT.get();
+        CURRENT.set(token);
+        try {
+            return f.call();
+        }
+        finally {
+            if(previous == null) {
+                CURRENT.remove();
+            }
+            else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Sleeps until the time has passed or the token is cancelled.
+     *
+     * @return true if the token was cancelled
+     */
+    boolean sleep(TimeSource time, long millis) throws InterruptedException {
+        if(time == TimeSource.system()) {
+            return cancelled.await(millis, TimeUnit.MILLISECONDS);
+        }
+        time.sleep(millis);
+        return isCancelled();
+    }
+
+    public interface Registration extends AutoCloseable {
+        /**
+         * Removes the action, if it hasn't been run yet.
+         */
+        @Override
+        void close();
+    }
+
+    private final class Callback implements Registration {
+        private final Runnable action;
+
+        private Callback(Runnable action) {
+            this.action = action;
+        }
+
+        /**
+         * Runs the action, unless it has been run or removed already.
+         */
+        private void runOnce() {
+            if(callbacks.remove(this)) {
+                action.run();
+            }
+        }
+
+        @Override
+        public void close() {
+            callbacks.remove(this);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package io.github.jebl01.bonjava;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+public final class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final Function<TimeSource, Window> windowFactory;
+    private final TimeSource timeSource;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+    //shared by all rejected calls, when exceptions are stackless
+    private final CircuitBreakerOpenException rejected;
+    private final AtomicReference<Holder> holder;
+
+    private CircuitBreaker(Builder builder) {
+        this.windowFactory = builder.windowFactory;
+        this.timeSource = builder.timeSource;
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.minimumCalls = builder.minimumCalls;
+        this.openDurationNanos = builder.openDurationNanos;
+        this.halfOpenCalls = builder.halfOpenCalls;
+        this.rejected = builder.stackTraces ? null : new CircuitBreakerOpenException("circuit breaker is open", false);
+        this.holder = new AtomicReference<>(closed());
+    }
+
+    /**
+     * A circuit breaker computing the failure rate over the last {@code windowSize} calls.
+     */
+    public static Builder countBased(int windowSize) {
+        if(windowSize <= 0) {
+            throw new IllegalArgumentException("windowSize");
+        }
+        return new Builder(timeSource -> new CountWindow(windowSize));
+    }
+
+    /**
+     * A circuit breaker computing the failure rate over the calls made during the last {@code window} time.
+     */
+    public static Builder timeBased(long window, TimeUnit unit) {
+        Objects.requireNonNull(unit);
+        if(window <= 0) {
+            throw new IllegalArgumentException("window");
+        }
+        final long windowNanos = unit.toNanos(window);
+        return new Builder(timeSource -> new TimeWindow(windowNanos, timeSource));
+    }
+
+    public static <T, R> Function<T, R> withCircuitBreaker(final Function<T, R> f, final CircuitBreaker breaker) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(breaker);
+        return t -> breaker.call(
+                () -> f.apply(t),
+                r -> false,
+                e -> {
+                    SneakyThrow.<RuntimeException>sneakyException(e);
+                    return null;
+                });
+    }
+
+    public static <T, L, R> Function<T, Either<L, R>> withCircuitBreaker(final Function<T, R> f,
+                                                                         final Function<Exception, L> errorMapper,
+                                                                         final CircuitBreaker breaker) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(breaker);
+        return t -> breaker.call(
+                () -> Either.right(f.apply(t)),
+                r -> false,
+                e -> Either.left(errorMapper.apply(e)));
+    }
+
+    /**
+     * Left results are passed on, but count as failures.
+     */
+    public static <T, L, R> Function<T, Either<L, R>> eitherWithCircuitBreaker(final Function<T, Either<L, R>> f,
+                                                                               final Function<Exception, L> errorMapper,
+                                                                               final CircuitBreaker breaker) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(breaker);
+        return t -> breaker.call(
+                () -> f.apply(t),
+                Either::isLeft,
+                e -> Either.left(errorMapper.apply(e)));
+    }
+
+    public static <T> Supplier<T> withCircuitBreakerSupply(final Supplier<T> f, final CircuitBreaker breaker) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(breaker);
+        return () -> breaker.call(
+                f,
+                r -> false,
+                e -> {
+                    SneakyThrow.<RuntimeException>sneakyException(e);
+                    return null;
+                });
+    }
+
+    public static <L, R> Supplier<Either<L, R>> withCircuitBreakerSupply(final Supplier<R> f,
+                                                                         final Function<Exception, L> errorMapper,
+                                                                         final CircuitBreaker breaker) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(breaker);
+        return () -> breaker.call(
+                () -> Either.right(f.get()),
+                r -> false,
+                e -> Either.left(errorMapper.apply(e)));
+    }
+
+    public static <L, R> Supplier<Either<L, R>> eitherWithCircuitBreakerSupply(final Supplier<Either<L, R>> f,
+                                                                               final Function<Exception, L> errorMapper,
+                                                                               final CircuitBreaker breaker) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(breaker);
+        return () -> breaker.call(
+                f,
+                Either::isLeft,
+                e -> Either.left(errorMapper.apply(e)));
+    }
+
+    public State state() {
+        final Holder current = holder.get();
+        if(current.state == State.OPEN && timeSource.nanoTime() - current.openedAt >= openDurationNanos) {
+            return State.HALF_OPEN;
+        }
+        return current.state;
+    }
+
+    private <T> T call(Supplier<T> f,
+                       Predicate<T> isFailure,
+                       Function<Exception, T> errorMapper) {
+        final Holder acquired = tryAcquire();
+        if(acquired == null) {
+            return errorMapper.apply(
+                    rejected != null ? rejected : new CircuitBreakerOpenException("circuit breaker is open"));
+        }
+        final T result;
+        try {
+            result = f.get();
+        }
+        catch(Exception e) {
+            onResult(acquired, true);
+            return errorMapper.apply(e);
+        }
+        catch(Throwable e) {
+            onResult(acquired, true);
+            throw e;
+        }
+        onResult(acquired, isFailure.test(result));
+        return result;
+    }
+
+    private Holder tryAcquire() {
+        while(true) {
+            final Holder current = holder.get();
+            switch(current.state) {
+                case CLOSED:
+                    return current;
+                case HALF_OPEN:
+                    return current.permits.getAndDecrement() > 0 ? current : null;
+                default:
+                    if(timeSource.nanoTime() - current.openedAt < openDurationNanos) {
+                        return null;
+                    }
+                    holder.compareAndSet(current, halfOpen());
+            }
+        }
+    }
+
+    private void onResult(Holder acquired, boolean failure) {
+        if(acquired != holder.get()) {
+            return;
+        }
+        if(acquired.state == State.HALF_OPEN) {
+            if(failure) {
+                holder.compareAndSet(acquired, open());
+            }
+            else if(acquired.successes.incrementAndGet() >= halfOpenCalls) {
+                holder.compareAndSet(acquired, closed());
+            }
+            return;
+        }
+        acquired.window.record(failure);
+        if(failure && acquired.window.failureRate(minimumCalls) >= failureRateThreshold) {
+            holder.compareAndSet(acquired, open());
+        }
+    }
+
+    private Holder closed() {
+        return new Holder(State.CLOSED, windowFactory.apply(timeSource), 0, 0);
+    }
+
+    private Holder open() {
+        return new Holder(State.OPEN, null, timeSource.nanoTime(), 0);
+    }
+
+    private Holder halfOpen() {
+        return new Holder(State.HALF_OPEN, null, 0, halfOpenCalls);
+    }
+
+    private static class Holder {
+        private final State state;
+        private final Window window;
+        private final long openedAt;
+        private final AtomicInteger permits;
+        private final AtomicInteger successes = new AtomicInteger();
+
+        private Holder(State state, Window window, long openedAt, int permits) {
+            this.state = state;
+            this.window = window;
+            this.openedAt = openedAt;
+            this.permits = new AtomicInteger(permits);
+        }
+    }
+
+    private interface Window {
+        void record(boolean failure);
+
+        /**
+         * @return the failure rate, or -1 if fewer than minimumCalls have been recorded
+         */
+        double failureRate(int minimumCalls);
+    }
+
+    private static class CountWindow implements Window {
+        private static final int SUCCESS = 1;
+        private static final int FAILURE = 2;
+
+        private final AtomicIntegerArray outcomes;
+        private final AtomicLong index = new AtomicLong();
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private CountWindow(int windowSize) {
+            this.outcomes = new AtomicIntegerArray(windowSize);
+        }
+
+        @Override
+        public void record(boolean failure) {
+            final int slot = (int) (index.getAndIncrement() % outcomes.length());
+            final int previous = outcomes.getAndSet(slot, failure ? FAILURE : SUCCESS);
+            if(previous == 0) {
+                calls.incrementAndGet();
+            }
+            else if(previous == FAILURE) {
+                failures.decrementAndGet();
+            }
+            if(failure) {
+                failures.incrementAndGet();
+            }
+        }
+
+        @Override
+        public double failureRate(int minimumCalls) {
+            final int total = calls.get();
+            return total < minimumCalls || total == 0 ? -1 : (double) failures.get() / total;
+        }
+    }
+
+    private static class TimeWindow implements Window {
+        private static final int BUCKETS = 10;
+
+        private final long bucketNanos;
+        private final TimeSource timeSource;
+        private final AtomicReferenceArray<Bucket> buckets = new AtomicReferenceArray<>(BUCKETS);
+
+        private TimeWindow(long windowNanos, TimeSource timeSource) {
+            this.bucketNanos = Math.max(1, windowNanos / BUCKETS);
+            this.timeSource = timeSource;
+        }
+
+        @Override
+        public void record(boolean failure) {
+            final long epoch = timeSource.nanoTime() / bucketNanos;
+            final int slot = (int) Math.floorMod(epoch, (long) BUCKETS);
+            Bucket bucket = buckets.get(slot);
+            while(bucket == null || bucket.epoch != epoch) {
+                final Bucket fresh = new Bucket(epoch);
+                if(buckets.compareAndSet(slot, bucket, fresh)) {
+                    bucket = fresh;
+                }
+                else {
+                    bucket = buckets.get(slot);
+                }
+            }
+            bucket.calls.incrementAndGet();
+            if(failure) {
+                bucket.failures.incrementAndGet();
+            }
+        }
+
+        @Override
+        public double failureRate(int minimumCalls) {
+            final long epoch = timeSource.nanoTime() / bucketNanos;
+            long total = 0;
+            long failures = 0;
+            for(int i = 0; i < BUCKETS; i++) {
+                final Bucket bucket = buckets.get(i);
+                if(bucket != null && epoch - bucket.epoch < BUCKETS) {
+                    total += bucket.calls.get();
+                    failures += bucket.failures.get();
+                }
+            }
+            return total < minimumCalls || total == 0 ? -1 : (double) failures / total;
+        }
+
+        private static class Bucket {
+            private final long epoch;
+            private final AtomicInteger calls = new AtomicInteger();
+            private final AtomicInteger failures = new AtomicInteger();
+
+            private Bucket(long epoch) {
+                this.epoch = epoch;
+            }
+        }
+    }
+
+    public static class Builder {
+        private final Function<TimeSource, Window> windowFactory;
+        private TimeSource timeSource = TimeSource.system();
+        private double failureRateThreshold = 0.5;
+        private int minimumCalls = 10;
+        private long openDurationNanos = TimeUnit.SECONDS.toNanos(30);
+        private int halfOpenCalls = 1;
+        private boolean stackTraces = !Boolean.getBoolean("bonjava.stacklessExceptions");
+
+        private Builder(Function<TimeSource, Window> windowFactory) {
+            this.windowFactory = windowFactory;
+        }
+
+        public Builder failureRateThreshold(double failureRateThreshold) {
+            if(failureRateThreshold <= 0 || failureRateThreshold > 1) {
+                throw new IllegalArgumentException("failureRateThreshold");
+            }
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        public Builder minimumCalls(int minimumCalls) {
+            if(minimumCalls <= 0) {
+                throw new IllegalArgumentException("minimumCalls");
+            }
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        public Builder openDuration(long duration, TimeUnit unit) {
+            Objects.requireNonNull(unit);
+            if(duration < 0) {
+                throw new IllegalArgumentException("duration");
+            }
+            this.openDurationNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public Builder halfOpenCalls(int halfOpenCalls) {
+            if(halfOpenCalls <= 0) {
+                throw new IllegalArgumentException("halfOpenCalls");
+            }
+            this.halfOpenCalls = halfOpenCalls;
+            return this;
+        }
+
+        /**
+         * The clock for the time based window and the open duration (e.g. a {@link VirtualTime} for tests).
+         */
+        public Builder timeSource(TimeSource timeSource) {
+            this.timeSource = Objects.requireNonNull(timeSource);
+            return this;
+        }
+
+        /**
+         * Reject calls with a single shared {@link CircuitBreakerOpenException} without a stack trace, rather than
+         * filling in a new one for every call while the breaker is open. The default can be set with the system
+         * property {@code bonjava.stacklessExceptions}.
+         */
+        public Builder stacklessExceptions(boolean stackless) {
+            this.stackTraces = !stackless;
+            return this;
+        }
+
+        public CircuitBreaker build() {
+            return new CircuitBreaker(this);
+        }
+    }
+
+    public static class CircuitBreakerOpenException extends RuntimeException {
+        public CircuitBreakerOpenException(String reason) {
+            super(reason);
+        }
+
+        /**
+         * A stackless exception (without a writable stack trace) also has suppression disabled, so that an instance
+         * can be shared.
+         */
+        public CircuitBreakerOpenException(String reason, boolean writableStackTrace) {
+            super(reason, null, writableStackTrace, writableStackTrace);
+        }
+    }
+}
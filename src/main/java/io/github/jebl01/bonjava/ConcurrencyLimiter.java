@@ -0,0 +1,306 @@
+package io.github.jebl01.bonjava;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of concurrent calls to a dependency. Calls over the limit are rejected right away (never queued)
+ * with a {@link ConcurrencyLimitExceededException}, and the limit is adjusted from the latencies and failures of the
+ * calls made. A limiter can be shared by several decorated functions; wrap a retrying function's attempt function to
+ * make every attempt count against the limit.
+ */
+public final class ConcurrencyLimiter {
+
+    public interface Limit {
+        /**
+         * @return the current limit (called for every acquire, so it should be cheap)
+         */
+        int get();
+
+        /**
+         * Called when a call has completed. Must be thread safe.
+         *
+         * @param inFlight the number of calls in flight when the call started (including itself)
+         * @param dropped  true if the call failed
+         */
+        void onSample(long rttNanos, int inFlight, boolean dropped);
+    }
+
+    private final Limit limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private ConcurrencyLimiter(Limit limit) {
+        this.limit = limit;
+    }
+
+    public static ConcurrencyLimiter of(Limit limit) {
+        return new ConcurrencyLimiter(Objects.requireNonNull(limit));
+    }
+
+    /**
+     * Additive increase, multiplicative decrease: the limit grows by one for every successful call made while at
+     * least half of the limit is used, and is multiplied by {@code backoffRatio} for every failed call.
+     */
+    public static ConcurrencyLimiter aimd(int initialLimit, int minLimit, int maxLimit, double backoffRatio) {
+        validateLimits(initialLimit, minLimit, maxLimit);
+        if(backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("backoffRatio");
+        }
+        return of(new AimdLimit(initialLimit, minLimit, maxLimit, backoffRatio));
+    }
+
+    /**
+     * Compares the recent latency with the long term latency: the limit shrinks while latency grows (i.e. while
+     * requests are queueing up at the dependency) and grows while it doesn't. Failed calls shrink the limit too.
+     */
+    public static ConcurrencyLimiter gradient(int initialLimit, int minLimit, int maxLimit) {
+        validateLimits(initialLimit, minLimit, maxLimit);
+        return of(new GradientLimit(initialLimit, minLimit, maxLimit));
+    }
+
+    private static void validateLimits(int initialLimit, int minLimit, int maxLimit) {
+        if(minLimit <= 0) {
+            throw new IllegalArgumentException("minLimit");
+        }
+        if(maxLimit < minLimit) {
+            throw new IllegalArgumentException("maxLimit");
+        }
+        if(initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("initialLimit");
+        }
+    }
+
+    public static <T, R> Function<T, R> withConcurrencyLimit(final Function<T, R> f, final ConcurrencyLimiter limiter) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(limiter);
+        return t -> limiter.call(
+                () -> f.apply(t),
+                r -> false,
+                e -> {
+                    SneakyThrow.<RuntimeException>sneakyException(e);
+                    return null;
+                });
+    }
+
+    public static <T, L, R> Function<T, Either<L, R>> withConcurrencyLimit(final Function<T, R> f,
+                                                                           final Function<Exception, L> errorMapper,
+                                                                           final ConcurrencyLimiter limiter) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(limiter);
+        return t -> limiter.call(
+                () -> Either.right(f.apply(t)),
+                r -> false,
+                e -> Either.left(errorMapper.apply(e)));
+    }
+
+    /**
+     * Left results are passed on, but count as failures.
+     */
+    public static <T, L, R> Function<T, Either<L, R>> eitherWithConcurrencyLimit(final Function<T, Either<L, R>> f,
+                                                                                 final Function<Exception, L> errorMapper,
+                                                                                 final ConcurrencyLimiter limiter) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(limiter);
+        return t -> limiter.call(
+                () -> f.apply(t),
+                Either::isLeft,
+                e -> Either.left(errorMapper.apply(e)));
+    }
+
+    public static <T> Supplier<T> withConcurrencyLimitSupply(final Supplier<T> f, final ConcurrencyLimiter limiter) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(limiter);
+        return () -> limiter.call(
+                f,
+                r -> false,
+                e -> {
+                    SneakyThrow.<RuntimeException>sneakyException(e);
+                    return null;
+                });
+    }
+
+    public static <L, R> Supplier<Either<L, R>> withConcurrencyLimitSupply(final Supplier<R> f,
+                                                                           final Function<Exception, L> errorMapper,
+                                                                           final ConcurrencyLimiter limiter) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(limiter);
+        return () -> limiter.call(
+                () -> Either.right(f.get()),
+                r -> false,
+                e -> Either.left(errorMapper.apply(e)));
+    }
+
+    public static <L, R> Supplier<Either<L, R>> eitherWithConcurrencyLimitSupply(final Supplier<Either<L, R>> f,
+                                                                                 final Function<Exception, L> errorMapper,
+                                                                                 final ConcurrencyLimiter limiter) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(limiter);
+        return () -> limiter.call(
+                f,
+                Either::isLeft,
+                e -> Either.left(errorMapper.apply(e)));
+    }
+
+    public int limit() {
+        return limit.get();
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    private <T> T call(Supplier<T> f,
+                       Predicate<T> isFailure,
+                       Function<Exception, T> errorMapper) {
+        final int acquired = tryAcquire();
+        if(acquired == 0) {
+            return errorMapper.apply(new ConcurrencyLimitExceededException("concurrency limit exceeded"));
+        }
+        final long start = System.nanoTime();
+        final T result;
+        try {
+            result = f.get();
+        }
+        catch(Exception e) {
+            release(start, acquired, true);
+            return errorMapper.apply(e);
+        }
+        catch(Throwable e) {
+            release(start, acquired, true);
+            throw e;
+        }
+        release(start, acquired, isFailure.test(result));
+        return result;
+    }
+
+    /**
+     * @return the number of calls in flight including the acquired one, or 0 if the limit has been reached
+     */
+    private int tryAcquire() {
+        while(true) {
+            final int current = inFlight.get();
+            if(current >= limit.get()) {
+                return 0;
+            }
+            if(inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    private void release(long start, int acquired, boolean dropped) {
+        inFlight.decrementAndGet();
+        limit.onSample(System.nanoTime() - start, acquired, dropped);
+    }
+
+    static class AimdLimit implements Limit {
+        private final int minLimit;
+        private final int maxLimit;
+        private final double backoffRatio;
+        private final AtomicInteger limit;
+
+        AimdLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio) {
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.backoffRatio = backoffRatio;
+            this.limit = new AtomicInteger(initialLimit);
+        }
+
+        @Override
+        public int get() {
+            return limit.get();
+        }
+
+        @Override
+        public void onSample(long rttNanos, int inFlight, boolean dropped) {
+            int current;
+            int next;
+            do {
+                current = limit.get();
+                if(dropped) {
+                    next = Math.max(minLimit, (int) (current * backoffRatio));
+                }
+                else if(inFlight * 2 >= current) {
+                    next = Math.min(maxLimit, current + 1);
+                }
+                else {
+                    return;
+                }
+            } while(next != current && !limit.compareAndSet(current, next));
+        }
+    }
+
+    /**
+     * The estimator state is only updated by one thread at a time; samples arriving meanwhile are skipped rather than
+     * waited for.
+     */
+    static class GradientLimit implements Limit {
+        private static final double SHORT_WINDOW = 10;
+        private static final double LONG_WINDOW = 600;
+        private static final double TOLERANCE = 1.5;
+        private static final double SMOOTHING = 0.2;
+
+        private final int minLimit;
+        private final int maxLimit;
+        private final AtomicBoolean updating = new AtomicBoolean();
+        private volatile int limit;
+        private double estimatedLimit;
+        private double shortRtt;
+        private double longRtt;
+
+        GradientLimit(int initialLimit, int minLimit, int maxLimit) {
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.limit = initialLimit;
+            this.estimatedLimit = initialLimit;
+        }
+
+        @Override
+        public int get() {
+            return limit;
+        }
+
+        @Override
+        public void onSample(long rttNanos, int inFlight, boolean dropped) {
+            if(!updating.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                final double rtt = Math.max(1, rttNanos);
+                shortRtt = shortRtt == 0 ? rtt : shortRtt + (rtt - shortRtt) / SHORT_WINDOW;
+                longRtt = longRtt == 0 ? rtt : longRtt + (rtt - longRtt) / LONG_WINDOW;
+                if(longRtt > shortRtt * 2) {
+                    //latency has dropped a lot, so let the long term latency catch up faster
+                    longRtt = longRtt * 0.95;
+                }
+                if(!dropped && inFlight * 2 < estimatedLimit) {
+                    return;
+                }
+                final double gradient = dropped
+                        ? 0.5
+                        : Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+                final double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+                estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+                        estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING));
+                limit = (int) estimatedLimit;
+            }
+            finally {
+                updating.set(false);
+            }
+        }
+    }
+
+    public static class ConcurrencyLimitExceededException extends RuntimeException {
+        public ConcurrencyLimitExceededException(String reason) {
+            super(reason);
+        }
+    }
+}
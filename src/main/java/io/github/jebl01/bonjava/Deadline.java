@@ -0,0 +1,76 @@
+package io.github.jebl01.bonjava;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+public final class Deadline {
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final TimeSource time;
+    private final long deadlineNanos;
+
+    private Deadline(TimeSource time, long deadlineNanos) {
+        this.time = time;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static Deadline after(long duration, TimeUnit unit) {
+        return after(duration, unit, TimeSource.system());
+    }
+
+    static Deadline after(long duration, TimeUnit unit, TimeSource time) {
+        Objects.requireNonNull(unit);
+        if(duration < 0) {
+            throw new IllegalArgumentException("duration");
+        }
+        final long now = time.nanoTime();
+        final long nanos = unit.toNanos(duration);
+        return new Deadline(time, now + nanos < now ? Long.MAX_VALUE : now + nanos);
+    }
+
+    /**
+     * The deadline of the attempt currently executing on this thread, if the attempt is executed by a
+     * {@link Retry} or {@link AsyncRetry} wrapper configured with an attempt timeout or a max duration.
+     */
+    public static Optional<Deadline> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    public long remaining(TimeUnit unit) {
+        return unit.convert(Math.max(0, deadlineNanos - time.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - time.nanoTime() <= 0;
+    }
+
+    public Deadline min(Deadline other) {
+        if(other == null) {
+            return this;
+        }
+        return deadlineNanos - other.deadlineNanos <= 0 ? this : other;
+    }
+
+    static <R> R callWith(Deadline deadline, Callable<R> f) throws Exception {
+        final Deadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+        try {
+            return f.call();
+        }
+        finally {
+            if(previous == null) {
+                CURRENT.remove();
+            }
+            else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline[" + remaining(TimeUnit.MILLISECONDS) + " ms remaining]";
+    }
+}
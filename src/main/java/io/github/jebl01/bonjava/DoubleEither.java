@@ -0,0 +1,213 @@
+package io.github.jebl01.bonjava;
+
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Like {@link Either}, but with a primitive {@code double} right, so that it's never boxed. Mapping a left, or the left of
+ * a right, returns the same instance.
+ */
+public abstract class DoubleEither<L> {
+
+    public static <L> DoubleEither<L> left(L left) {
+        return new Left<>(left);
+    }
+
+    public static <L> DoubleEither<L> right(double right) {
+        return new Right<>(right);
+    }
+
+    public static <L> DoubleEither<L> fromEither(Either<L, Double> either) {
+        Objects.requireNonNull(either);
+        return either.isRight() ? right(either.rightValue()) : left(either.leftValue());
+    }
+
+    public boolean isLeft() {
+        return false;
+    }
+
+    public boolean isRight() {
+        return false;
+    }
+
+    public Optional<L> getLeft() {
+        return Optional.empty();
+    }
+
+    public OptionalDouble getRight() {
+        return OptionalDouble.empty();
+    }
+
+    /**
+     * @throws NoSuchElementException if this is a right
+     */
+    public L leftValue() {
+        throw new NoSuchElementException("not a left");
+    }
+
+    /**
+     * @throws NoSuchElementException if this is a left
+     */
+    public double rightValue() {
+        throw new NoSuchElementException("not a right");
+    }
+
+    public double rightOrElse(double other) {
+        return other;
+    }
+
+    public void ifLeft(Consumer<L> consumer) {
+    }
+
+    public void ifRight(DoubleConsumer consumer) {
+    }
+
+    public abstract DoubleEither<L> map(DoubleUnaryOperator f);
+
+    public abstract <T> Either<L, T> mapToObj(DoubleFunction<T> f);
+
+    public abstract <T> DoubleEither<T> mapLeft(Function<? super L, T> f);
+
+    public abstract DoubleEither<L> flatMap(DoubleFunction<DoubleEither<L>> f);
+
+    public abstract <T> T fold(Function<? super L, ? extends T> lmap, DoubleFunction<? extends T> rmap);
+
+    public abstract Either<L, Double> toEither();
+
+    public static class Left<L> extends DoubleEither<L> {
+        private final L left;
+
+        private Left(L left) {
+            Objects.requireNonNull(left);
+            this.left = left;
+        }
+
+        @Override
+        public boolean isLeft() {
+            return true;
+        }
+
+        @Override
+        public Optional<L> getLeft() {
+            return Optional.of(left);
+        }
+
+        @Override
+        public L leftValue() {
+            return left;
+        }
+
+        @Override
+        public void ifLeft(Consumer<L> consumer) {
+            consumer.accept(left);
+        }
+
+        @Override
+        public DoubleEither<L> map(DoubleUnaryOperator f) {
+            return this;
+        }
+
+        @Override
+        public <T> Either<L, T> mapToObj(DoubleFunction<T> f) {
+            return Either.left(left);
+        }
+
+        @Override
+        public <T> DoubleEither<T> mapLeft(Function<? super L, T> f) {
+            Objects.requireNonNull(f);
+            return left(f.apply(left));
+        }
+
+        @Override
+        public DoubleEither<L> flatMap(DoubleFunction<DoubleEither<L>> f) {
+            return this;
+        }
+
+        @Override
+        public <T> T fold(Function<? super L, ? extends T> lmap, DoubleFunction<? extends T> rmap) {
+            return Objects.requireNonNull(lmap, "lmap cannot be null").apply(left);
+        }
+
+        @Override
+        public Either<L, Double> toEither() {
+            return Either.left(left);
+        }
+    }
+
+    public static class Right<L> extends DoubleEither<L> {
+        private final double right;
+
+        private Right(double right) {
+            this.right = right;
+        }
+
+        @Override
+        public boolean isRight() {
+            return true;
+        }
+
+        @Override
+        public OptionalDouble getRight() {
+            return OptionalDouble.of(right);
+        }
+
+        @Override
+        public double rightValue() {
+            return right;
+        }
+
+        @Override
+        public double rightOrElse(double other) {
+            return right;
+        }
+
+        @Override
+        public void ifRight(DoubleConsumer consumer) {
+            consumer.accept(right);
+        }
+
+        @Override
+        public DoubleEither<L> map(DoubleUnaryOperator f) {
+            Objects.requireNonNull(f);
+            return right(f.applyAsDouble(right));
+        }
+
+        @Override
+        public <T> Either<L, T> mapToObj(DoubleFunction<T> f) {
+            Objects.requireNonNull(f);
+            return Either.right(f.apply(right));
+        }
+
+        /**
+         * A right holds no left value, so it can be passed on as is instead of being copied.
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> DoubleEither<T> mapLeft(Function<? super L, T> f) {
+            return (DoubleEither<T>) (DoubleEither<?>) this;
+        }
+
+        @Override
+        public DoubleEither<L> flatMap(DoubleFunction<DoubleEither<L>> f) {
+            Objects.requireNonNull(f);
+            return f.apply(right);
+        }
+
+        @Override
+        public <T> T fold(Function<? super L, ? extends T> lmap, DoubleFunction<? extends T> rmap) {
+            return Objects.requireNonNull(rmap, "rmap cannot be null").apply(right);
+        }
+
+        @Override
+        public Either<L, Double> toEither() {
+            return Either.right(right);
+        }
+    }
+}
@@ -1,7 +1,15 @@
 package io.github.jebl01.bonjava;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -28,6 +36,68 @@ public abstract class Either<L, R> {
         return thiz.isRight() ? thiz : thatSupplier.get();
     }
 
+    /**
+     * @return all rights, or the first left (later eithers are not looked at)
+     */
+    public static <L, R> Either<L, List<R>> sequence(Iterable<Either<L, R>> eithers) {
+        return traverse(eithers, Function.identity());
+    }
+
+    /**
+     * @return {@code f} applied to all values if all results are rights, otherwise the first left ({@code f} is not
+     * applied to later values)
+     */
+    public static <T, L, R> Either<L, List<R>> traverse(Iterable<T> values, Function<? super T, Either<L, R>> f) {
+        Objects.requireNonNull(values);
+        Objects.requireNonNull(f);
+        final List<R> rights = values instanceof Collection
+                ? new ArrayList<>(((Collection<T>) values).size())
+                : new ArrayList<>();
+        for(T value : values) {
+            final Either<L, R> result = f.apply(value);
+            if(result.isLeft()) {
+                return retypeLeft(result);
+            }
+            rights.add(result.rightValue());
+        }
+        return right(rights);
+    }
+
+    /**
+     * Like {@link #traverse(Iterable, Function)}, applying {@code f} in parallel in the common fork/join pool.
+     */
+    public static <T, L, R> Either<L, List<R>> traverseParallel(List<T> values, Function<? super T, Either<L, R>> f) {
+        return traverseParallel(values, f, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Like {@link #traverse(Iterable, Function)}, applying {@code f} in parallel in the given pool. As soon as a left
+     * is found, the remaining values are skipped; since values are not handled in order, the left returned is the
+     * first one found, not necessarily the one of the first failing value. The list of rights is fixed-size.
+     */
+    public static <T, L, R> Either<L, List<R>> traverseParallel(List<T> values,
+                                                                Function<? super T, Either<L, R>> f,
+                                                                ForkJoinPool pool) {
+        Objects.requireNonNull(values);
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(pool);
+        final Traversal<T, L, R> traversal = new Traversal<>(values, f, pool.getParallelism());
+        pool.invoke(traversal.task(0, values.size()));
+        final Either<L, R> failure = traversal.failure.get();
+        if(failure != null) {
+            return retypeLeft(failure);
+        }
+        return right(traversal.rights());
+    }
+
+    /**
+     * A left holds no right value, so it can be passed on as is instead of being copied.
+     */
+    @SuppressWarnings("unchecked")
+    private static <L, R1, R2> Either<L, R2> retypeLeft(Either<L, R1> left) {
+        return (Either<L, R2>) (Either<L, ?>) left;
+    }
+
     public void ifLeft(Consumer<L> consumer) {
     }
 
@@ -53,6 +123,37 @@ public abstract class Either<L, R> {
         return Optional.empty();
     }
 
+    /**
+     * Like {@code getLeft().get()}, without creating an Optional.
+     *
+     * @throws NoSuchElementException if this is a right
+     */
+    public L leftValue() {
+        throw new NoSuchElementException("not a left");
+    }
+
+    /**
+     * Like {@code getRight().get()}, without creating an Optional.
+     *
+     * @throws NoSuchElementException if this is a left
+     */
+    public R rightValue() {
+        throw new NoSuchElementException("not a right");
+    }
+
+    public L leftOrElse(L other) {
+        return other;
+    }
+
+    public R rightOrElse(R other) {
+        return other;
+    }
+
+    /**
+     * @return the left mapped by {@code lmap}, or the right mapped by {@code rmap}
+     */
+    public abstract <T> T fold(Function<? super L, ? extends T> lmap, Function<? super R, ? extends T> rmap);
+
     public abstract <T> Either<L, T> map(Function<? super R, T> f);
 
     public abstract <T> Either<T, R> mapLeft(Function<? super L, T> f);
@@ -69,19 +170,57 @@ public abstract class Either<L, R> {
     }
 
     public <T> T map(Function<L, T> lmap, Function<R, T> rmap) {
-        if(isLeft()) {
-            return Objects.requireNonNull(lmap, "lmap cannot be null").apply(getLeft().get());
+        return fold(lmap, rmap);
+    }
+
+    public abstract <E extends Throwable> R getOrThrow(Function<L, E> f) throws E;
+
+    private static class Traversal<T, L, R> {
+        private final List<T> values;
+        private final Function<? super T, Either<L, R>> f;
+        private final int threshold;
+        private final Object[] rights;
+        private final AtomicReference<Either<L, R>> failure = new AtomicReference<>();
+
+        private Traversal(List<T> values, Function<? super T, Either<L, R>> f, int parallelism) {
+            this.values = values;
+            this.f = f;
+            //a few tasks per thread, so that threads finishing early can steal work
+            this.threshold = Math.max(1, values.size() / (parallelism * 4));
+            this.rights = new Object[values.size()];
         }
-        else {
-            return Objects.requireNonNull(rmap, "rmap cannot be null").apply(getRight().get());
+
+        private RecursiveAction task(int from, int to) {
+            return new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    if(failure.get() != null) {
+                        return;
+                    }
+                    if(to - from > threshold) {
+                        final int middle = (from + to) >>> 1;
+                        invokeAll(task(from, middle), task(middle, to));
+                        return;
+                    }
+                    for(int i = from; i < to && failure.get() == null; i++) {
+                        final Either<L, R> result = f.apply(values.get(i));
+                        if(result.isLeft()) {
+                            failure.compareAndSet(null, result);
+                            return;
+                        }
+                        rights[i] = result.rightValue();
+                    }
+                }
+            };
         }
-    }
 
-    public <E extends Throwable> R getOrThrow(Function<L, E> f) throws E {
-        if(isRight()) {
-            return getRight().get();
+        /**
+         * A view of the filled array, as it's not used for anything else once the traversal is done.
+         */
+        @SuppressWarnings("unchecked")
+        private List<R> rights() {
+            return Arrays.asList((R[]) rights);
         }
-        throw f.apply(getLeft().get());
     }
 
     public static class Left<L, R> extends Either<L, R> {
@@ -127,6 +266,26 @@ public abstract class Either<L, R> {
         public Optional<L> getLeft() {
             return Optional.of(left);
         }
+
+        @Override
+        public L leftValue() {
+            return left;
+        }
+
+        @Override
+        public L leftOrElse(L other) {
+            return left;
+        }
+
+        @Override
+        public <T> T fold(Function<? super L, ? extends T> lmap, Function<? super R, ? extends T> rmap) {
+            return Objects.requireNonNull(lmap, "lmap cannot be null").apply(left);
+        }
+
+        @Override
+        public <E extends Throwable> R getOrThrow(Function<L, E> f) throws E {
+            throw f.apply(left);
+        }
     }
 
     public static class Right<L, R> extends Either<L, R> {
@@ -174,5 +333,25 @@ public abstract class Either<L, R> {
         public Optional<R> getRight() {
             return Optional.of(right);
         }
+
+        @Override
+        public R rightValue() {
+            return right;
+        }
+
+        @Override
+        public R rightOrElse(R other) {
+            return right;
+        }
+
+        @Override
+        public <T> T fold(Function<? super L, ? extends T> lmap, Function<? super R, ? extends T> rmap) {
+            return Objects.requireNonNull(rmap, "rmap cannot be null").apply(right);
+        }
+
+        @Override
+        public <E extends Throwable> R getOrThrow(Function<L, E> f) {
+            return right;
+        }
     }
 }
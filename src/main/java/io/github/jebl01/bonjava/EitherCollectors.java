@@ -0,0 +1,105 @@
+package io.github.jebl01.bonjava;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collector;
+
+/**
+ * Collectors for streams of {@link Either}, collecting in a single pass. They keep the encounter order and can be used
+ * with parallel streams.
+ */
+public final class EitherCollectors {
+
+    private EitherCollectors() {
+    }
+
+    /**
+     * @return the lefts and the rights
+     */
+    public static <L, R> Collector<Either<L, R>, ?, Tuple.Tuple2<List<L>, List<R>>> partition() {
+        return Collector.of(
+                () -> new Tuple.Tuple2<List<L>, List<R>>(new ArrayList<>(), new ArrayList<>()),
+                (partition, either) -> {
+                    if(either.isRight()) {
+                        partition.v2.add(either.rightValue());
+                    }
+                    else {
+                        partition.v1.add(either.leftValue());
+                    }
+                },
+                (first, second) -> {
+                    first.v1.addAll(second.v1);
+                    first.v2.addAll(second.v2);
+                    return first;
+                },
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * @return all rights, or the first left (rights are no longer kept once a left has been found)
+     */
+    public static <L, R> Collector<Either<L, R>, ?, Either<L, List<R>>> rightsOrFirstLeft() {
+        return Collector.<Either<L, R>, Buffer<L, R>, Either<L, List<R>>>of(
+                Buffer::new,
+                (buffer, either) -> {
+                    if(buffer.lefts != null) {
+                        return;
+                    }
+                    if(either.isRight()) {
+                        buffer.rights.add(either.rightValue());
+                    }
+                    else {
+                        buffer.addLeft(either.leftValue());
+                    }
+                },
+                (first, second) -> first.lefts != null ? first : first.combine(second),
+                buffer -> buffer.lefts == null ? Either.right(buffer.rights) : Either.left(buffer.lefts.get(0)));
+    }
+
+    /**
+     * @return all rights, or all lefts if there is any (rights are no longer kept once a left has been found)
+     */
+    public static <L, R> Collector<Either<L, R>, ?, Either<List<L>, List<R>>> rightsOrAllLefts() {
+        return Collector.<Either<L, R>, Buffer<L, R>, Either<List<L>, List<R>>>of(
+                Buffer::new,
+                (buffer, either) -> {
+                    if(either.isRight()) {
+                        if(buffer.lefts == null) {
+                            buffer.rights.add(either.rightValue());
+                        }
+                    }
+                    else {
+                        buffer.addLeft(either.leftValue());
+                    }
+                },
+                Buffer::combine,
+                buffer -> buffer.lefts == null ? Either.right(buffer.rights) : Either.left(buffer.lefts));
+    }
+
+    private static class Buffer<L, R> {
+        private List<R> rights = new ArrayList<>();
+        private List<L> lefts;
+
+        private void addLeft(L left) {
+            if(lefts == null) {
+                lefts = new ArrayList<>();
+                rights = null;
+            }
+            lefts.add(left);
+        }
+
+        private Buffer<L, R> combine(Buffer<L, R> other) {
+            if(other.lefts == null) {
+                if(lefts == null) {
+                    rights.addAll(other.rights);
+                }
+                return this;
+            }
+            if(lefts == null) {
+                return other;
+            }
+            lefts.addAll(other.lefts);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package io.github.jebl01.bonjava;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Tries alternative functions that can serve the same data (replicas, caches etc) until one succeeds, best first. Each
+ * alternative's latency and success rate are tracked as exponentially weighted moving averages, and the alternatives
+ * are ranked by their expected time to a success. Alternatives that haven't been called yet are ranked last, in the
+ * given order, and once in a while another alternative that has been called is tried first, so that the ranking can
+ * recover.
+ * <p>
+ * Given an executor, the two best alternatives are raced in parallel, and the slower one is cancelled. When all
+ * alternatives fail, the left holds all their failures, in the order they failed.
+ */
+public final class FallbackChain<T, L, R> {
+    private static final int PROBE_INTERVAL = 100;
+
+    private final List<Function<T, Either<L, R>>> alternatives;
+    private final Stats[] stats;
+    private final Function<Exception, L> errorMapper;
+    private final ExecutorService executor;
+    private final TimeSource timeSource;
+
+    private FallbackChain(List<Function<T, Either<L, R>>> alternatives,
+                          Function<Exception, L> errorMapper,
+                          ExecutorService executor,
+                          TimeSource timeSource) {
+        this.alternatives = alternatives;
+        this.stats = new Stats[alternatives.size()];
+        for(int i = 0; i < stats.length; i++) {
+            stats[i] = new Stats();
+        }
+        this.errorMapper = errorMapper;
+        this.executor = executor;
+        this.timeSource = timeSource;
+    }
+
+    public static <T, L, R> Function<T, Either<List<L>, R>> withFallbacks(final List<Function<T, R>> alternatives,
+                                                                          final Function<Exception, L> errorMapper) {
+        return create(rights(alternatives), errorMapper, null)::call;
+    }
+
+    public static <T, L, R> Function<T, Either<List<L>, R>> withFallbacks(final List<Function<T, R>> alternatives,
+                                                                          final Function<Exception, L> errorMapper,
+                                                                          final ExecutorService executor) {
+        return create(rights(alternatives), errorMapper, Objects.requireNonNull(executor))::call;
+    }
+
+    public static <T, L, R> Function<T, Either<List<L>, R>> eitherWithFallbacks(final List<Function<T, Either<L, R>>> alternatives,
+                                                                                final Function<Exception, L> errorMapper) {
+        return create(new ArrayList<>(alternatives), errorMapper, null)::call;
+    }
+
+    public static <T, L, R> Function<T, Either<List<L>, R>> eitherWithFallbacks(final List<Function<T, Either<L, R>>> alternatives,
+                                                                                final Function<Exception, L> errorMapper,
+                                                                                final ExecutorService executor) {
+        return create(new ArrayList<>(alternatives), errorMapper, Objects.requireNonNull(executor))::call;
+    }
+
+    public static <L, R> Supplier<Either<List<L>, R>> withFallbacksSupply(final List<Supplier<R>> alternatives,
+                                                                          final Function<Exception, L> errorMapper) {
+        final FallbackChain<Void, L, R> chain = create(rights(functions(alternatives)), errorMapper, null);
+        return () -> chain.call(null);
+    }
+
+    public static <L, R> Supplier<Either<List<L>, R>> withFallbacksSupply(final List<Supplier<R>> alternatives,
+                                                                          final Function<Exception, L> errorMapper,
+                                                                          final ExecutorService executor) {
+        final FallbackChain<Void, L, R> chain = create(
+                rights(functions(alternatives)),
+                errorMapper,
+                Objects.requireNonNull(executor));
+        return () -> chain.call(null);
+    }
+
+    public static <L, R> Supplier<Either<List<L>, R>> eitherWithFallbacksSupply(final List<Supplier<Either<L, R>>> alternatives,
+                                                                                final Function<Exception, L> errorMapper) {
+        final FallbackChain<Void, L, R> chain = create(functions(alternatives), errorMapper, null);
+        return () -> chain.call(null);
+    }
+
+    public static <L, R> Supplier<Either<List<L>, R>> eitherWithFallbacksSupply(final List<Supplier<Either<L, R>>> alternatives,
+                                                                                final Function<Exception, L> errorMapper,
+                                                                                final ExecutorService executor) {
+        final FallbackChain<Void, L, R> chain = create(functions(alternatives), errorMapper, Objects.requireNonNull(executor));
+        return () -> chain.call(null);
+    }
+
+    static <T, L, R> FallbackChain<T, L, R> create(List<Function<T, Either<L, R>>> alternatives,
+                                                           Function<Exception, L> errorMapper,
+                                                           ExecutorService executor) {
+        return create(alternatives, errorMapper, executor, TimeSource.system());
+    }
+
+    static <T, L, R> FallbackChain<T, L, R> create(List<Function<T, Either<L, R>>> alternatives,
+                                                           Function<Exception, L> errorMapper,
+                                                           ExecutorService executor,
+                                                           TimeSource timeSource) {
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(timeSource);
+        if(alternatives.isEmpty()) {
+            throw new IllegalArgumentException("alternatives");
+        }
+        alternatives.forEach(Objects::requireNonNull);
+        return new FallbackChain<>(alternatives, errorMapper, executor, timeSource);
+    }
+
+    private static <T, L, R> List<Function<T, Either<L, R>>> rights(List<Function<T, R>> alternatives) {
+        final List<Function<T, Either<L, R>>> rights = new ArrayList<>(alternatives.size());
+        for(Function<T, R> f : alternatives) {
+            Objects.requireNonNull(f);
+            rights.add(t -> Either.right(f.apply(t)));
+        }
+        return rights;
+    }
+
+    private static <R> List<Function<Void, R>> functions(List<Supplier<R>> alternatives) {
+        final List<Function<Void, R>> functions = new ArrayList<>(alternatives.size());
+        for(Supplier<R> f : alternatives) {
+            Objects.requireNonNull(f);
+            functions.add(ignored -> f.get());
+        }
+        return functions;
+    }
+
+    Either<List<L>, R> call(T t) {
+        final int[] order = order();
+        final List<L> failures = new ArrayList<>(order.length);
+        int next = 0;
+        try {
+            if(executor != null && order.length > 1) {
+                final Either<L, R> raced = race(t, order[0], order[1], failures);
+                if(raced != null) {
+                    return Either.right(raced.rightValue());
+                }
+                //the alternatives tried, one if the second couldn't be started
+                next = failures.size();
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failures.add(errorMapper.apply(e));
+            return Either.left(failures);
+        }
+        catch(RejectedExecutionException e) {
+            //nothing was started, so just go on one at a time
+            next = 0;
+        }
+        for(; next < order.length; next++) {
+            final Either<L, R> result = attempt(order[next], t, null);
+            if(result.isRight()) {
+                return Either.right(result.rightValue());
+            }
+            failures.add(result.leftValue());
+        }
+        return Either.left(failures);
+    }
+
+    /**
+     * Races the two alternatives, or just waits for the first one if the executor rejects the second.
+     *
+     * @return the accepted result, or null if the alternatives that were started failed
+     * @throws RejectedExecutionException if the executor rejects the first alternative, so nothing was started
+     */
+    private Either<L, R> race(T t, int first, int second, List<L> failures) throws InterruptedException {
+        final BlockingQueue<Either<L, R>> outcomes = new ArrayBlockingQueue<>(2);
+        final AtomicBoolean decided = new AtomicBoolean();
+        final Future<?> firstAttempt = submit(first, t, outcomes, decided);
+        Future<?> secondAttempt = null;
+        try {
+            secondAttempt = submit(second, t, outcomes, decided);
+        }
+        catch(RejectedExecutionException e) {
+            //the first alternative may already be running, so it has to be waited for rather than tried again
+        }
+        try {
+            for(int i = secondAttempt != null ? 0 : 1; i < 2; i++) {
+                final Either<L, R> outcome = outcomes.take();
+                if(outcome.isRight()) {
+                    return outcome;
+                }
+                failures.add(outcome.leftValue());
+            }
+            return null;
+        }
+        finally {
+            decided.set(true);
+            firstAttempt.cancel(true);
+            if(secondAttempt != null) {
+                secondAttempt.cancel(true);
+            }
+        }
+    }
+
+    private Future<?> submit(int alternative, T t, BlockingQueue<Either<L, R>> outcomes, AtomicBoolean decided) {
+        return executor.submit(() -> {
+            try {
+                outcomes.offer(attempt(alternative, t, decided));
+            }
+            catch(Throwable e) {
+                outcomes.offer(Either.left(errorMapper.apply(new ExecutionException(e))));
+            }
+        });
+    }
+
+    /**
+     * @param decided set once the race the attempt is part of is decided, null if it's not raced
+     */
+    private Either<L, R> attempt(int alternative, T t, AtomicBoolean decided) {
+        final long start = timeSource.nanoTime();
+        try {
+            final Either<L, R> result = Objects.requireNonNull(alternatives.get(alternative).apply(t), "alternative returned null");
+            record(alternative, timeSource.nanoTime() - start, result.isRight(), decided);
+            return result;
+        }
+        catch(Exception e) {
+            record(alternative, timeSource.nanoTime() - start, false, decided);
+            return Either.left(errorMapper.apply(e));
+        }
+    }
+
+    private void record(int alternative, long latencyNanos, boolean success, AtomicBoolean decided) {
+        //a race loser failing after the race was decided was most likely cancelled, which says nothing about its health
+        if(!success && decided != null && decided.get()) {
+            return;
+        }
+        stats[alternative].record(latencyNanos, success);
+    }
+
+    /**
+     * @return the alternatives, best first
+     */
+    int[] order() {
+        final int[] order = new int[alternatives.size()];
+        final double[] scores = new double[order.length];
+        for(int i = 0; i < order.length; i++) {
+            final double score = stats[i].score();
+            //insertion sort, stable so that ties keep the given order
+            int j = i;
+            while(j > 0 && scores[j - 1] > score) {
+                order[j] = order[j - 1];
+                scores[j] = scores[j - 1];
+                j--;
+            }
+            order[j] = i;
+            scores[j] = score;
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        if(order.length > 1 && random.nextInt(PROBE_INTERVAL) == 0) {
+            final int probe = 1 + random.nextInt(order.length - 1);
+            final int alternative = order[probe];
+            //only rechecks alternatives that have been called, untried ones keep waiting for their turn
+            if(stats[alternative].isMeasured()) {
+                System.arraycopy(order, 0, order, 1, probe);
+                order[0] = alternative;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * @return the expected time to a success of the given alternative, {@link Double#MAX_VALUE} if it hasn't been called
+     */
+    double score(int alternative) {
+        return stats[alternative].score();
+    }
+
+    /**
+     * Samples from concurrent calls may overwrite each other, which just loses some of them.
+     */
+    private static class Stats {
+        private static final double WEIGHT = 0.2;
+        private static final double MIN_SUCCESS_RATE = 0.01;
+
+        private volatile double latencyNanos = -1;
+        private volatile double successRate = 1;
+
+        private void record(long latencyNanos, boolean success) {
+            final double latency = this.latencyNanos;
+            this.latencyNanos = latency < 0 ? latencyNanos : latency + (latencyNanos - latency) * WEIGHT;
+            this.successRate = successRate + ((success ? 1 : 0) - successRate) * WEIGHT;
+        }
+
+        private boolean isMeasured() {
+            return latencyNanos >= 0;
+        }
+
+        /**
+         * @return the expected time to a success
+         */
+        private double score() {
+            final double latency = latencyNanos;
+            return latency < 0 ? Double.MAX_VALUE : latency / Math.max(MIN_SUCCESS_RATE, successRate);
+        }
+    }
+}
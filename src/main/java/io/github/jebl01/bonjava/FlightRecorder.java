@@ -0,0 +1,233 @@
+package io.github.jebl01.bonjava;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Keeps the most recent retry and exception handler events in memory, for looking at after an incident. Events are
+ * written to a preallocated ring buffer without locks or allocation; when it's full the oldest events are overwritten.
+ * Writers lapping each other (i.e. when more than {@code capacity} events are recorded concurrently) may lose events.
+ * <p>
+ * Retry wrappers are recorded by building their {@link RetryPolicy} with {@link #listener(String)}, exception handlers
+ * by wrapping them with {@link #handler(String, Function)} or {@link #handlerConsume(String, Consumer)}.
+ */
+public final class FlightRecorder {
+
+    public enum Outcome {
+        /**
+         * An attempt threw, or completed with, an exception.
+         */
+        ATTEMPT_FAILURE,
+        /**
+         * An attempt returned a result not accepted by the predicate.
+         */
+        ATTEMPT_REJECTED,
+        BACKOFF,
+        SUCCESS,
+        GIVE_UP,
+        /**
+         * An exception handler was called.
+         */
+        HANDLED
+    }
+
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong();
+    //a slot's version is odd while it's being written, and 2 * (sequence + 1) once written
+    private final AtomicLongArray versions;
+    private final AtomicLongArray timestamps;
+    private final AtomicIntegerArray wrappers;
+    private final AtomicIntegerArray attempts;
+    private final AtomicIntegerArray outcomes;
+    private final AtomicReferenceArray<Class<?>> exceptions;
+    private final List<String> names = new ArrayList<>();
+
+    private FlightRecorder(int capacity) {
+        this.mask = capacity - 1;
+        this.versions = new AtomicLongArray(capacity);
+        this.timestamps = new AtomicLongArray(capacity);
+        this.wrappers = new AtomicIntegerArray(capacity);
+        this.attempts = new AtomicIntegerArray(capacity);
+        this.outcomes = new AtomicIntegerArray(capacity);
+        this.exceptions = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * @param capacity the number of events to keep (rounded up to a power of two)
+     */
+    public static FlightRecorder create(int capacity) {
+        if(capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity");
+        }
+        return new FlightRecorder(capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1);
+    }
+
+    /**
+     * @return a listener recording the attempts, backoffs, successes and give ups of the wrappers using it
+     */
+    public RetryListener listener(String wrapper) {
+        final int id = register(wrapper);
+        return new RetryListener() {
+            @Override
+            public void onAttemptFailure(int attempt, Throwable failure, long latencyNanos) {
+                record(id, attempt, Outcome.ATTEMPT_FAILURE, failure);
+            }
+
+            @Override
+            public void onAttemptRejected(int attempt, long latencyNanos) {
+                record(id, attempt, Outcome.ATTEMPT_REJECTED, null);
+            }
+
+            @Override
+            public void onBackoff(int retry, long millisecWait) {
+                record(id, retry, Outcome.BACKOFF, null);
+            }
+
+            @Override
+            public void onSuccess(int attempts, long elapsedNanos) {
+                record(id, attempts, Outcome.SUCCESS, null);
+            }
+
+            @Override
+            public void onGiveUp(int attempts, Throwable reason, long elapsedNanos) {
+                record(id, attempts, Outcome.GIVE_UP, reason);
+            }
+        };
+    }
+
+    /**
+     * @return the exception handler, recording every exception passed to it
+     */
+    public <R> Function<Throwable, R> handler(String wrapper, Function<Throwable, R> exceptionHandler) {
+        Objects.requireNonNull(exceptionHandler);
+        final int id = register(wrapper);
+        return e -> {
+            record(id, 0, Outcome.HANDLED, e);
+            return exceptionHandler.apply(e);
+        };
+    }
+
+    /**
+     * @return the exception handler, recording every exception passed to it
+     */
+    public Consumer<Throwable> handlerConsume(String wrapper, Consumer<Throwable> exceptionHandler) {
+        Objects.requireNonNull(exceptionHandler);
+        final int id = register(wrapper);
+        return e -> {
+            record(id, 0, Outcome.HANDLED, e);
+            exceptionHandler.accept(e);
+        };
+    }
+
+    private synchronized int register(String wrapper) {
+        names.add(Objects.requireNonNull(wrapper));
+        return names.size() - 1;
+    }
+
+    void record(int wrapper, int attempt, Outcome outcome, Throwable exception) {
+        final long sequence = cursor.getAndIncrement();
+        final int slot = (int) (sequence & mask);
+        versions.set(slot, 2 * sequence + 1);
+        timestamps.lazySet(slot, System.currentTimeMillis());
+        wrappers.lazySet(slot, wrapper);
+        attempts.lazySet(slot, attempt);
+        outcomes.lazySet(slot, outcome.ordinal());
+        exceptions.lazySet(slot, exception == null ? null : exception.getClass());
+        versions.set(slot, 2 * sequence + 2);
+    }
+
+    /**
+     * @return the recorded events, oldest first (events being written while dumping are left out)
+     */
+    public List<Event> dump() {
+        final long end = cursor.get();
+        final long start = Math.max(0, end - mask - 1);
+        final String[] wrapperNames;
+        synchronized(this) {
+            wrapperNames = names.toArray(new String[0]);
+        }
+        final List<Event> events = new ArrayList<>((int) (end - start));
+        for(long sequence = start; sequence < end; sequence++) {
+            final int slot = (int) (sequence & mask);
+            final long version = 2 * sequence + 2;
+            if(versions.get(slot) != version) {
+                continue;
+            }
+            final Event event = new Event(
+                    sequence,
+                    timestamps.get(slot),
+                    wrapperNames[wrappers.get(slot)],
+                    attempts.get(slot),
+                    OUTCOMES[outcomes.get(slot)],
+                    exceptions.get(slot));
+            if(versions.get(slot) == version) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    public static final class Event {
+        private final long sequence;
+        private final long timestampMillis;
+        private final String wrapper;
+        private final int attempt;
+        private final Outcome outcome;
+        private final Class<?> exception;
+
+        private Event(long sequence, long timestampMillis, String wrapper, int attempt, Outcome outcome, Class<?> exception) {
+            this.sequence = sequence;
+            this.timestampMillis = timestampMillis;
+            this.wrapper = wrapper;
+            this.attempt = attempt;
+            this.outcome = outcome;
+            this.exception = exception;
+        }
+
+        public long sequence() {
+            return sequence;
+        }
+
+        public long timestampMillis() {
+            return timestampMillis;
+        }
+
+        public String wrapper() {
+            return wrapper;
+        }
+
+        /**
+         * @return the attempt (or, for a backoff, the retry) number, the number of attempts made for a success or give
+         * up, and 0 for handled exceptions
+         */
+        public int attempt() {
+            return attempt;
+        }
+
+        public Outcome outcome() {
+            return outcome;
+        }
+
+        /**
+         * @return the class of the exception, or null if there was none
+         */
+        public Class<?> exception() {
+            return exception;
+        }
+
+        @Override
+        public String toString() {
+            return sequence + " " + timestampMillis + " " + wrapper + " #" + attempt + " " + outcome
+                    + (exception == null ? "" : " " + exception.getName());
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package io.github.jebl01.bonjava;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+public class Hedging {
+
+    public interface Delay {
+        /**
+         * @return milliseconds to wait for an attempt before starting the next one
+         */
+        long millisecWait();
+
+        /**
+         * @return nanoseconds to wait for an attempt before starting the next one; hedging uses this, so that waits
+         * shorter than a millisecond aren't rounded down to no wait at all
+         */
+        default long nanosWait() {
+            return TimeUnit.MILLISECONDS.toNanos(millisecWait());
+        }
+
+        void record(long latencyNanos);
+    }
+
+    public static Delay fixedDelay(long millisecWait) {
+        if(millisecWait < 0) {
+            throw new IllegalArgumentException("millisecWait");
+        }
+        return new Delay() {
+            @Override
+            public long millisecWait() {
+                return millisecWait;
+            }
+
+            @Override
+            public void record(long latencyNanos) {
+            }
+        };
+    }
+
+    /**
+     * Waits for the given percentile (e.g. 0.95) of the recently observed attempt latencies, or
+     * {@code initialMillisecWait} until enough latencies have been observed.
+     */
+    public static Delay percentileDelay(double percentile, long initialMillisecWait) {
+        if(percentile <= 0 || percentile > 1) {
+            throw new IllegalArgumentException("percentile");
+        }
+        if(initialMillisecWait < 0) {
+            throw new IllegalArgumentException("initialMillisecWait");
+        }
+        return new PercentileDelay(percentile, initialMillisecWait);
+    }
+
+    public static <T, L, R> Function<T, Either<L, R>> withHedging(final Function<T, R> f,
+                                                                  final Predicate<R> predicate,
+                                                                  final Function<Exception, L> errorMapper,
+                                                                  int maxAttempts,
+                                                                  final Delay delay,
+                                                                  final ExecutorService executor) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(predicate);
+        Objects.requireNonNull(errorMapper);
+        validateCommonArgs(maxAttempts, delay, executor);
+        return t -> hedge(() -> f.apply(t), predicate, errorMapper, maxAttempts, delay, executor);
+    }
+
+    public static <L, R> Supplier<Either<L, R>> withHedgingSupply(final Supplier<R> f,
+                                                                  final Predicate<R> predicate,
+                                                                  final Function<Exception, L> errorMapper,
+                                                                  int maxAttempts,
+                                                                  final Delay delay,
+                                                                  final ExecutorService executor) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(predicate);
+        Objects.requireNonNull(errorMapper);
+        validateCommonArgs(maxAttempts, delay, executor);
+        return () -> hedge(f, predicate, errorMapper, maxAttempts, delay, executor);
+    }
+
+    private static void validateCommonArgs(int maxAttempts, Delay delay, ExecutorService executor) {
+        if(maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts");
+        }
+        Objects.requireNonNull(delay);
+        Objects.requireNonNull(executor);
+    }
+
+    private static <L, R> Either<L, R> hedge(Supplier<R> f,
+                                             Predicate<R> predicate,
+                                             Function<Exception, L> errorMapper,
+                                             int maxAttempts,
+                                             Delay delay,
+                                             ExecutorService executor) {
+        final BlockingQueue<Outcome<R>> outcomes = new ArrayBlockingQueue<>(maxAttempts);
+        final Future<?>[] attempts = new Future<?>[maxAttempts];
+        int launched = 0;
+        int failed = 0;
+        Throwable lastFailure = null;
+        try {
+            attempts[launched++] = launch(f, predicate, delay, executor, outcomes);
+            while(true) {
+                final Outcome<R> outcome = launched < maxAttempts
+                        ? outcomes.poll(delay.nanosWait(), TimeUnit.NANOSECONDS)
+                        : outcomes.take();
+                if(outcome == null) {
+                    attempts[launched++] = launch(f, predicate, delay, executor, outcomes);
+                    continue;
+                }
+                if(outcome.accepted) {
+                    return Either.right(outcome.result);
+                }
+                failed++;
+                if(outcome.failure != null) {
+                    lastFailure = outcome.failure;
+                }
+                if(failed == launched) {
+                    if(launched == maxAttempts) {
+                        return Either.left(errorMapper.apply(lastFailure == null
+                                ? new Retry.RetryException("hedged " + maxAttempts + " attempts but failed")
+                                : new Retry.RetryException("hedged " + maxAttempts + " attempts but failed with exception",
+                                        lastFailure)));
+                    }
+                    attempts[launched++] = launch(f, predicate, delay, executor, outcomes);
+                }
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Either.left(errorMapper.apply(e));
+        }
+        catch(Exception e) {
+            return Either.left(errorMapper.apply(e));
+        }
+        finally {
+            for(int i = 0; i < launched; i++) {
+                attempts[i].cancel(true);
+            }
+        }
+    }
+
+    private static <R> Future<?> launch(Supplier<R> f,
+                                        Predicate<R> predicate,
+                                        Delay delay,
+                                        ExecutorService executor,
+                                        BlockingQueue<Outcome<R>> outcomes) {
+        return executor.submit(() -> {
+            final long start = System.nanoTime();
+            try {
+                final R result = f.get();
+                delay.record(System.nanoTime() - start);
+                outcomes.offer(new Outcome<>(predicate.test(result), result, null));
+            }
+            catch(Throwable e) {
+                outcomes.offer(new Outcome<>(false, null, e));
+            }
+        });
+    }
+
+    private static class Outcome<R> {
+        private final boolean accepted;
+        private final R result;
+        private final Throwable failure;
+
+        private Outcome(boolean accepted, R result, Throwable failure) {
+            this.accepted = accepted;
+            this.result = result;
+            this.failure = failure;
+        }
+    }
+
+    static class PercentileDelay implements Delay {
+        private static final int MIN_SAMPLES = 20;
+        private static final int DECAY_INTERVAL = 1000;
+
+        private final double percentile;
+        private final long initialMillisecWait;
+        private final LatencyHistogram histogram;
+        private final AtomicLong recorded = new AtomicLong();
+
+        private PercentileDelay(double percentile, long initialMillisecWait) {
+            this(percentile, initialMillisecWait, new LatencyHistogram());
+        }
+
+        PercentileDelay(double percentile, long initialMillisecWait, LatencyHistogram histogram) {
+            this.percentile = percentile;
+            this.initialMillisecWait = initialMillisecWait;
+            this.histogram = histogram;
+        }
+
+        /**
+         * Rounded up, as rounding down would hedge every call to a dependency faster than a millisecond.
+         */
+        @Override
+        public long millisecWait() {
+            return (nanosWait() + 999_999) / 1_000_000;
+        }
+
+        /**
+         * The initial wait until there are enough samples, and again if decaying has emptied the histogram. Never
+         * less than a microsecond, as latencies below one all land in the zero bucket.
+         */
+        @Override
+        public long nanosWait() {
+            final long micros = recorded.get() < MIN_SAMPLES ? -1 : histogram.percentile(percentile);
+            if(micros < 0) {
+                return TimeUnit.MILLISECONDS.toNanos(initialMillisecWait);
+            }
+            return TimeUnit.MICROSECONDS.toNanos(Math.max(1, micros));
+        }
+
+        @Override
+        public void record(long latencyNanos) {
+            histogram.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            if(recorded.incrementAndGet() % DECAY_INTERVAL == 0) {
+                histogram.decay();
+            }
+        }
+    }
+}
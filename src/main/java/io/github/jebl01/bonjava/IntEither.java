@@ -0,0 +1,213 @@
+package io.github.jebl01.bonjava;
+
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Like {@link Either}, but with a primitive {@code int} right, so that it's never boxed. Mapping a left, or the left of
+ * a right, returns the same instance.
+ */
+public abstract class IntEither<L> {
+
+    public static <L> IntEither<L> left(L left) {
+        return new Left<>(left);
+    }
+
+    public static <L> IntEither<L> right(int right) {
+        return new Right<>(right);
+    }
+
+    public static <L> IntEither<L> fromEither(Either<L, Integer> either) {
+        Objects.requireNonNull(either);
+        return either.isRight() ? right(either.rightValue()) : left(either.leftValue());
+    }
+
+    public boolean isLeft() {
+        return false;
+    }
+
+    public boolean isRight() {
+        return false;
+    }
+
+    public Optional<L> getLeft() {
+        return Optional.empty();
+    }
+
+    public OptionalInt getRight() {
+        return OptionalInt.empty();
+    }
+
+    /**
+     * @throws NoSuchElementException if this is a right
+     */
+    public L leftValue() {
+        throw new NoSuchElementException("not a left");
+    }
+
+    /**
+     * @throws NoSuchElementException if this is a left
+     */
+    public int rightValue() {
+        throw new NoSuchElementException("not a right");
+    }
+
+    public int rightOrElse(int other) {
+        return other;
+    }
+
+    public void ifLeft(Consumer<L> consumer) {
+    }
+
+    public void ifRight(IntConsumer consumer) {
+    }
+
+    public abstract IntEither<L> map(IntUnaryOperator f);
+
+    public abstract <T> Either<L, T> mapToObj(IntFunction<T> f);
+
+    public abstract <T> IntEither<T> mapLeft(Function<? super L, T> f);
+
+    public abstract IntEither<L> flatMap(IntFunction<IntEither<L>> f);
+
+    public abstract <T> T fold(Function<? super L, ? extends T> lmap, IntFunction<? extends T> rmap);
+
+    public abstract Either<L, Integer> toEither();
+
+    public static class Left<L> extends IntEither<L> {
+        private final L left;
+
+        private Left(L left) {
+            Objects.requireNonNull(left);
+            this.left = left;
+        }
+
+        @Override
+        public boolean isLeft() {
+            return true;
+        }
+
+        @Override
+        public Optional<L> getLeft() {
+            return Optional.of(left);
+        }
+
+        @Override
+        public L leftValue() {
+            return left;
+        }
+
+        @Override
+        public void ifLeft(Consumer<L> consumer) {
+            consumer.accept(left);
+        }
+
+        @Override
+        public IntEither<L> map(IntUnaryOperator f) {
+            return this;
+        }
+
+        @Override
+        public <T> Either<L, T> mapToObj(IntFunction<T> f) {
+            return Either.left(left);
+        }
+
+        @Override
+        public <T> IntEither<T> mapLeft(Function<? super L, T> f) {
+            Objects.requireNonNull(f);
+            return left(f.apply(left));
+        }
+
+        @Override
+        public IntEither<L> flatMap(IntFunction<IntEither<L>> f) {
+            return this;
+        }
+
+        @Override
+        public <T> T fold(Function<? super L, ? extends T> lmap, IntFunction<? extends T> rmap) {
+            return Objects.requireNonNull(lmap, "lmap cannot be null").apply(left);
+        }
+
+        @Override
+        public Either<L, Integer> toEither() {
+            return Either.left(left);
+        }
+    }
+
+    public static class Right<L> extends IntEither<L> {
+        private final int right;
+
+        private Right(int right) {
+            this.right = right;
+        }
+
+        @Override
+        public boolean isRight() {
+            return true;
+        }
+
+        @Override
+        public OptionalInt getRight() {
+            return OptionalInt.of(right);
+        }
+
+        @Override
+        public int rightValue() {
+            return right;
+        }
+
+        @Override
+        public int rightOrElse(int other) {
+            return right;
+        }
+
+        @Override
+        public void ifRight(IntConsumer consumer) {
+            consumer.accept(right);
+        }
+
+        @Override
+        public IntEither<L> map(IntUnaryOperator f) {
+            Objects.requireNonNull(f);
+            return right(f.applyAsInt(right));
+        }
+
+        @Override
+        public <T> Either<L, T> mapToObj(IntFunction<T> f) {
+            Objects.requireNonNull(f);
+            return Either.right(f.apply(right));
+        }
+
+        /**
+         * A right holds no left value, so it can be passed on as is instead of being copied.
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> IntEither<T> mapLeft(Function<? super L, T> f) {
+            return (IntEither<T>) (IntEither<?>) this;
+        }
+
+        @Override
+        public IntEither<L> flatMap(IntFunction<IntEither<L>> f) {
+            Objects.requireNonNull(f);
+            return f.apply(right);
+        }
+
+        @Override
+        public <T> T fold(Function<? super L, ? extends T> lmap, IntFunction<? extends T> rmap) {
+            return Objects.requireNonNull(rmap, "rmap cannot be null").apply(right);
+        }
+
+        @Override
+        public Either<L, Integer> toEither() {
+            return Either.right(right);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package io.github.jebl01.bonjava;
+
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Like {@link Either}, but with a primitive {@code long} right, so that it's never boxed. Mapping a left, or the left of
+ * a right, returns the same instance.
+ */
+public abstract class LongEither<L> {
+
+    public static <L> LongEither<L> left(L left) {
+        return new Left<>(left);
+    }
+
+    public static <L> LongEither<L> right(long right) {
+        return new Right<>(right);
+    }
+
+    public static <L> LongEither<L> fromEither(Either<L, Long> either) {
+        Objects.requireNonNull(either);
+        return either.isRight() ? right(either.rightValue()) : left(either.leftValue());
+    }
+
+    public boolean isLeft() {
+        return false;
+    }
+
+    public boolean isRight() {
+        return false;
+    }
+
+    public Optional<L> getLeft() {
+        return Optional.empty();
+    }
+
+    public OptionalLong getRight() {
+        return OptionalLong.empty();
+    }
+
+    /**
+     * @throws NoSuchElementException if this is a right
+     */
+    public L leftValue() {
+        throw new NoSuchElementException("not a left");
+    }
+
+    /**
+     * @throws NoSuchElementException if this is a left
+     */
+    public long rightValue() {
+        throw new NoSuchElementException("not a right");
+    }
+
+    public long rightOrElse(long other) {
+        return other;
+    }
+
+    public void ifLeft(Consumer<L> consumer) {
+    }
+
+    public void ifRight(LongConsumer consumer) {
+    }
+
+    public abstract LongEither<L> map(LongUnaryOperator f);
+
+    public abstract <T> Either<L, T> mapToObj(LongFunction<T> f);
+
+    public abstract <T> LongEither<T> mapLeft(Function<? super L, T> f);
+
+    public abstract LongEither<L> flatMap(LongFunction<LongEither<L>> f);
+
+    public abstract <T> T fold(Function<? super L, ? extends T> lmap, LongFunction<? extends T> rmap);
+
+    public abstract Either<L, Long> toEither();
+
+    public static class Left<L> extends LongEither<L> {
+        private final L left;
+
+        private Left(L left) {
+            Objects.requireNonNull(left);
+            this.left = left;
+        }
+
+        @Override
+        public boolean isLeft() {
+            return true;
+        }
+
+        @Override
+        public Optional<L> getLeft() {
+            return Optional.of(left);
+        }
+
+        @Override
+        public L leftValue() {
+            return left;
+        }
+
+        @Override
+        public void ifLeft(Consumer<L> consumer) {
+            consumer.accept(left);
+        }
+
+        @Override
+        public LongEither<L> map(LongUnaryOperator f) {
+            return this;
+        }
+
+        @Override
+        public <T> Either<L, T> mapToObj(LongFunction<T> f) {
+            return Either.left(left);
+        }
+
+        @Override
+        public <T> LongEither<T> mapLeft(Function<? super L, T> f) {
+            Objects.requireNonNull(f);
+            return left(f.apply(left));
+        }
+
+        @Override
+        public LongEither<L> flatMap(LongFunction<LongEither<L>> f) {
+            return this;
+        }
+
+        @Override
+        public <T> T fold(Function<? super L, ? extends T> lmap, LongFunction<? extends T> rmap) {
+            return Objects.requireNonNull(lmap, "lmap cannot be null").apply(left);
+        }
+
+        @Override
+        public Either<L, Long> toEither() {
+            return Either.left(left);
+        }
+    }
+
+    public static class Right<L> extends LongEither<L> {
+        private final long right;
+
+        private Right(long right) {
+            this.right = right;
+        }
+
+        @Override
+        public boolean isRight() {
+            return true;
+        }
+
+        @Override
+        public OptionalLong getRight() {
+            return OptionalLong.of(right);
+        }
+
+        @Override
+        public long rightValue() {
+            return right;
+        }
+
+        @Override
+        public long rightOrElse(long other) {
+            return right;
+        }
+
+        @Override
+        public void ifRight(LongConsumer consumer) {
+            consumer.accept(right);
+        }
+
+        @Override
+        public LongEither<L> map(LongUnaryOperator f) {
+            Objects.requireNonNull(f);
+            return right(f.applyAsLong(right));
+        }
+
+        @Override
+        public <T> Either<L, T> mapToObj(LongFunction<T> f) {
+            Objects.requireNonNull(f);
+            return Either.right(f.apply(right));
+        }
+
+        /**
+         * A right holds no left value, so it can be passed on as is instead of being copied.
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> LongEither<T> mapLeft(Function<? super L, T> f) {
+            return (LongEither<T>) (LongEither<?>) this;
+        }
+
+        @Override
+        public LongEither<L> flatMap(LongFunction<LongEither<L>> f) {
+            Objects.requireNonNull(f);
+            return f.apply(right);
+        }
+
+        @Override
+        public <T> T fold(Function<? super L, ? extends T> lmap, LongFunction<? extends T> rmap) {
+            return Objects.requireNonNull(rmap, "rmap cannot be null").apply(right);
+        }
+
+        @Override
+        public Either<L, Long> toEither() {
+            return Either.right(right);
+        }
+    }
+}
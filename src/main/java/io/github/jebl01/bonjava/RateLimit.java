@@ -0,0 +1,246 @@
+package io.github.jebl01.bonjava;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A rate limit allowing {@code permits} calls per {@code period}, with bursts of up to {@code burst} calls. Implemented
+ * as a generic cell rate algorithm: the whole state is the theoretical arrival time of the next call, kept in a single
+ * CAS updated long. A rate limit can be shared by several decorated functions.
+ * <p>
+ * The plain decorators wait for a permit, the ones taking an error mapper reject calls over the limit with a left
+ * (mapped from a {@link RateLimitExceededException}) and the async ones schedule calls over the limit for later.
+ */
+public final class RateLimit {
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final TimeSource timeSource;
+    private final AtomicLong arrival;
+
+    private RateLimit(long intervalNanos, int burst, TimeSource timeSource) {
+        this.intervalNanos = intervalNanos;
+        this.burstNanos = intervalNanos > Long.MAX_VALUE / 4 / burst ? Long.MAX_VALUE / 4 : intervalNanos * burst;
+        this.timeSource = timeSource;
+        this.arrival = new AtomicLong(timeSource.nanoTime());
+    }
+
+    public static RateLimit of(int permits, long period, TimeUnit unit) {
+        return of(permits, period, unit, permits);
+    }
+
+    public static RateLimit of(int permits, long period, TimeUnit unit, int burst) {
+        return of(permits, period, unit, burst, TimeSource.system());
+    }
+
+    /**
+     * @param timeSource the clock, and for blocking calls the sleeper (e.g. a {@link VirtualTime} for tests)
+     */
+    public static RateLimit of(int permits, long period, TimeUnit unit, int burst, TimeSource timeSource) {
+        Objects.requireNonNull(unit);
+        Objects.requireNonNull(timeSource);
+        if(permits <= 0) {
+            throw new IllegalArgumentException("permits");
+        }
+        if(period <= 0) {
+            throw new IllegalArgumentException("period");
+        }
+        if(burst <= 0) {
+            throw new IllegalArgumentException("burst");
+        }
+        return new RateLimit(Math.max(1, unit.toNanos(period) / permits), burst, timeSource);
+    }
+
+    public static <T, R> Function<T, R> withRateLimit(final Function<T, R> f, final RateLimit limit) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(limit);
+        return t -> {
+            limit.acquire();
+            return f.apply(t);
+        };
+    }
+
+    public static <T, L, R> Function<T, Either<L, R>> withRateLimit(final Function<T, R> f,
+                                                                    final Function<Exception, L> errorMapper,
+                                                                    final RateLimit limit) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(limit);
+        return t -> limit.tryCall(() -> Either.right(f.apply(t)), errorMapper);
+    }
+
+    public static <T, L, R> Function<T, Either<L, R>> eitherWithRateLimit(final Function<T, Either<L, R>> f,
+                                                                          final Function<Exception, L> errorMapper,
+                                                                          final RateLimit limit) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(limit);
+        return t -> limit.tryCall(() -> f.apply(t), errorMapper);
+    }
+
+    public static <T, R> Function<T, CompletableFuture<R>> withRateLimitAsync(final Function<T, CompletableFuture<R>> f,
+                                                                             final RateLimit limit,
+                                                                             final ScheduledExecutorService scheduler) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(limit);
+        Objects.requireNonNull(scheduler);
+        return t -> limit.scheduleCall(() -> f.apply(t), scheduler);
+    }
+
+    public static <T> Supplier<T> withRateLimitSupply(final Supplier<T> f, final RateLimit limit) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(limit);
+        return () -> {
+            limit.acquire();
+            return f.get();
+        };
+    }
+
+    public static <L, R> Supplier<Either<L, R>> withRateLimitSupply(final Supplier<R> f,
+                                                                    final Function<Exception, L> errorMapper,
+                                                                    final RateLimit limit) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(limit);
+        return () -> limit.tryCall(() -> Either.right(f.get()), errorMapper);
+    }
+
+    public static <L, R> Supplier<Either<L, R>> eitherWithRateLimitSupply(final Supplier<Either<L, R>> f,
+                                                                          final Function<Exception, L> errorMapper,
+                                                                          final RateLimit limit) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(limit);
+        return () -> limit.tryCall(f, errorMapper);
+    }
+
+    public static <T> Supplier<CompletableFuture<T>> withRateLimitSupplyAsync(final Supplier<CompletableFuture<T>> f,
+                                                                             final RateLimit limit,
+                                                                             final ScheduledExecutorService scheduler) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(limit);
+        Objects.requireNonNull(scheduler);
+        return () -> limit.scheduleCall(f, scheduler);
+    }
+
+    private <L, R> Either<L, R> tryCall(Supplier<Either<L, R>> f, Function<Exception, L> errorMapper) {
+        if(!tryAcquire()) {
+            return Either.left(errorMapper.apply(new RateLimitExceededException("rate limit exceeded")));
+        }
+        try {
+            return f.get();
+        }
+        catch(Exception e) {
+            return Either.left(errorMapper.apply(e));
+        }
+    }
+
+    private <R> CompletableFuture<R> scheduleCall(Supplier<CompletableFuture<R>> f,
+                                                  ScheduledExecutorService scheduler) {
+        final long reserved = reserve();
+        final long waitNanos = reserved - burstNanos - timeSource.nanoTime();
+        if(waitNanos <= 0) {
+            return call(f);
+        }
+        final CompletableFuture<R> promise = new CompletableFuture<>();
+        try {
+            scheduler.schedule(() -> call(f).whenComplete((r, e) -> {
+                if(e == null) {
+                    promise.complete(r);
+                }
+                else {
+                    promise.completeExceptionally(e);
+                }
+            }), waitNanos, TimeUnit.NANOSECONDS);
+        }
+        catch(Exception e) {
+            release(reserved);
+            promise.completeExceptionally(e);
+        }
+        return promise;
+    }
+
+    private static <R> CompletableFuture<R> call(Supplier<CompletableFuture<R>> f) {
+        try {
+            return Objects.requireNonNull(f.get(), "call returned null");
+        }
+        catch(Throwable e) {
+            final CompletableFuture<R> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    boolean tryAcquire() {
+        while(true) {
+            final long current = arrival.get();
+            final long now = timeSource.nanoTime();
+            final long next = (current - now > 0 ? current : now) + intervalNanos;
+            if(next - now > burstNanos) {
+                return false;
+            }
+            if(arrival.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reserves the next permit, however far ahead it is.
+     *
+     * @return the arrival time reserved, the permit may be used {@code burstNanos} before it
+     */
+    long reserve() {
+        while(true) {
+            final long current = arrival.get();
+            final long now = timeSource.nanoTime();
+            final long next = (current - now > 0 ? current : now) + intervalNanos;
+            if(arrival.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Gives back a reserved permit that won't be used. That's only possible while it's the latest reservation, as
+     * later callers have already been told how long to wait; otherwise the permit is lost.
+     */
+    private void release(long reserved) {
+        arrival.compareAndSet(reserved, reserved - intervalNanos);
+    }
+
+    private void acquire() {
+        final long reserved = reserve();
+        final long permitted = reserved - burstNanos;
+        long remaining;
+        while((remaining = permitted - timeSource.nanoTime()) > 0) {
+            try {
+                if(timeSource == TimeSource.system()) {
+                    LockSupport.parkNanos(this, remaining);
+                    if(Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+                else {
+                    timeSource.sleep(TimeUnit.NANOSECONDS.toMillis(remaining + 999_999));
+                }
+            }
+            catch(InterruptedException e) {
+                release(reserved);
+                Thread.currentThread().interrupt();
+                throw SneakyThrow.<RuntimeException>sneakyException(e);
+            }
+        }
+    }
+
+    public static class RateLimitExceededException extends RuntimeException {
+        public RateLimitExceededException(String reason) {
+            super(reason);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package io.github.jebl01.bonjava;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -8,37 +10,12 @@ import java.util.function.Supplier;
 
 public class Retry {
 
-    private static void validateCommonArgs(int retries, long millisecWait, double backingOffMultiplier) {
-        if(retries < 0) {
-            throw new IllegalArgumentException("retries");
-        }
-        if(millisecWait < 0) {
-            throw new IllegalArgumentException("millisecWait");
-        }
-        if(backingOffMultiplier < 0) {
-            throw new IllegalArgumentException("backingOffMultiplier");
-        }
-    }
-
     public static <T, R> Function<T, R> withRetries(final Function<T, R> f,
                                                     final Predicate<R> predicate,
                                                     int retries,
                                                     long millisecWait,
                                                     double backingOffMultiplier) {
-        Objects.requireNonNull(f);
-        Objects.requireNonNull(predicate);
-        validateCommonArgs(retries, millisecWait, backingOffMultiplier);
-        return t -> retry(
-                () -> f.apply(t),
-                predicate,
-                e -> {
-                    SneakyThrow.<RuntimeException>sneakyException(e);
-                    return null;
-                },
-                Function.identity(),
-                retries,
-                millisecWait,
-                backingOffMultiplier);
+        return withRetries(f, predicate, retries, BackoffPolicy.exponential(millisecWait, backingOffMultiplier));
     }
 
     public static <T, L, R> Function<T, Either<L, R>> withRetries(final Function<T, R> f,
@@ -47,18 +24,12 @@ public class Retry {
                                                                   int retries,
                                                                   long millisecWait,
                                                                   double backingOffMultiplier) {
-        Objects.requireNonNull(f);
-        Objects.requireNonNull(predicate);
-        Objects.requireNonNull(errorMapper);
-        validateCommonArgs(retries, millisecWait, backingOffMultiplier);
-        return t -> retry(
-                () -> f.apply(t),
+        return withRetries(
+                f,
                 predicate,
-                (e) -> Either.left(errorMapper.apply(e)),
-                Either::right,
+                errorMapper,
                 retries,
-                millisecWait,
-                backingOffMultiplier);
+                BackoffPolicy.exponential(millisecWait, backingOffMultiplier));
     }
 
     public static <T, L1, L2, R> Function<T, Either<L2, R>> eitherWithRetries(final Function<T, Either<L1, R>> f,
@@ -67,17 +38,12 @@ public class Retry {
                                                                               int retries,
                                                                               long millisecWait,
                                                                               double backingOffMultiplier) {
-        Objects.requireNonNull(f);
-        Objects.requireNonNull(predicate);
-        Objects.requireNonNull(errorMapper);
-        validateCommonArgs(retries, millisecWait, backingOffMultiplier);
-        return t -> retryEither(
-                () -> f.apply(t),
+        return eitherWithRetries(
+                f,
                 predicate,
                 errorMapper,
                 retries,
-                millisecWait,
-                backingOffMultiplier);
+                BackoffPolicy.exponential(millisecWait, backingOffMultiplier));
     }
 
     public static <T> Supplier<T> withRetriesSupply(final Supplier<T> f,
@@ -85,20 +51,7 @@ public class Retry {
                                                     int retries,
                                                     long millisecWait,
                                                     double backingOffMultiplier) {
-        Objects.requireNonNull(f);
-        Objects.requireNonNull(predicate);
-        validateCommonArgs(retries, millisecWait, backingOffMultiplier);
-        return () -> retry(
-                f,
-                predicate,
-                e -> {
-                    SneakyThrow.<RuntimeException>sneakyException(e);
-                    return null;
-                },
-                Function.identity(),
-                retries,
-                millisecWait,
-                backingOffMultiplier);
+        return withRetriesSupply(f, predicate, retries, BackoffPolicy.exponential(millisecWait, backingOffMultiplier));
     }
 
     public static <L, R> Supplier<Either<L, R>> withRetriesSupply(final Supplier<R> f,
@@ -107,18 +60,12 @@ public class Retry {
                                                                   int retries,
                                                                   long millisecWait,
                                                                   double backingOffMultiplier) {
-        Objects.requireNonNull(f);
-        Objects.requireNonNull(predicate);
-        Objects.requireNonNull(errorMapper);
-        validateCommonArgs(retries, millisecWait, backingOffMultiplier);
-        return () -> retry(
+        return withRetriesSupply(
                 f,
                 predicate,
-                (e) -> Either.left(errorMapper.apply(e)),
-                Either::right,
+                errorMapper,
                 retries,
-                millisecWait,
-                backingOffMultiplier);
+                BackoffPolicy.exponential(millisecWait, backingOffMultiplier));
     }
 
     public static <L1, L2, R> Supplier<Either<L2, R>> eitherWithRetriesSupply(final Supplier<Either<L1, R>> f,
@@ -127,17 +74,12 @@ public class Retry {
                                                                               int retries,
                                                                               long millisecWait,
                                                                               double backingOffMultiplier) {
-        Objects.requireNonNull(f);
-        Objects.requireNonNull(predicate);
-        Objects.requireNonNull(errorMapper);
-        validateCommonArgs(retries, millisecWait, backingOffMultiplier);
-        return () -> retryEither(
+        return eitherWithRetriesSupply(
                 f,
                 predicate,
                 errorMapper,
                 retries,
-                millisecWait,
-                backingOffMultiplier);
+                BackoffPolicy.exponential(millisecWait, backingOffMultiplier));
     }
 
     public static Runnable withRetriesRun(final Runnable f,
@@ -145,82 +87,145 @@ public class Retry {
                                           int retries,
                                           long millisecWait,
                                           double backingOffMultiplier) {
-        Objects.requireNonNull(f);
-        Objects.requireNonNull(errorHandler);
-        validateCommonArgs(retries, millisecWait, backingOffMultiplier);
-        return () -> retry(
-                () -> {
-                    f.run();
-                    return true;
-                },
-                r -> true,
-                (t) -> {
-                    errorHandler.accept(t);
-                    return true;
-                },
-                Function.identity(),
-                retries,
-                millisecWait,
-                backingOffMultiplier);
-    }
-
-    private static <T, R> T retry(Supplier<R> f,
-                                  final Predicate<R> predicate,
-                                  final Function<Exception, T> errorMapper,
-                                  final Function<R, T> resultMapper,
-                                  int retries,
-                                  long millisecWait,
-                                  double backingOffMultiplier) {
-        for(int i = 0; i < retries; i++) {
-            try {
-                R result = f.get();
-                if(predicate.test(result)) {
-                    return resultMapper.apply(result);
-                }
-            }
-            catch(Throwable e) {
-                if(i == retries - 1) {
-                    return errorMapper.apply(new RetryException("retried " + retries + " times but failed with exception",
-                            e));
-                }
-            }
-            try {
-                Thread.sleep(millisecWait);
-            } catch (InterruptedException e) {
-                return errorMapper.apply(e);
-            }
-            millisecWait = (long) (millisecWait * backingOffMultiplier);
-        }
-        return errorMapper.apply(new RetryException("retried " + retries + " times but failed"));
-    }
-
-    private static <L1, L2, R> Either<L2, R> retryEither(Supplier<Either<L1, R>> f,
-                                                         final Predicate<R> predicate,
-                                                         final Function<Exception, L2> errorMapper,
-                                                         int retries,
-                                                         long millisecWait,
-                                                         double backingOffMultiplier) {
-        for(int i = 0; i < retries; i++) {
-            try {
-                final Either<L1, R> result = f.get();
-                if(result.isRight() && predicate.test(result.getRight().get())) {
-                    return Either.right(result.getRight().get());
-                }
-            }
-            catch(Throwable e) {
-                if(i == retries - 1) {
-                    return Either.left(errorMapper.apply(new RetryException("retried " + retries + " times but failed with exception",
-                            e)));
-                }
-            }
-            try {
-                Thread.sleep(millisecWait);
-            } catch (InterruptedException e) {
-                return Either.left(errorMapper.apply(e));
-            }
-            millisecWait = (long) (millisecWait * backingOffMultiplier);
-        }
-        return Either.left(errorMapper.apply(new RetryException("retried " + retries + " times but failed")));
+        return withRetriesRun(f, errorHandler, retries, BackoffPolicy.exponential(millisecWait, backingOffMultiplier));
+    }
+
+    public static <T, R> Function<T, R> withRetries(final Function<T, R> f,
+                                                    final Predicate<R> predicate,
+                                                    int retries,
+                                                    final BackoffPolicy backoff) {
+        return withRetries(f, predicate, RetryPolicy.of(retries, backoff));
+    }
+
+    public static <T, L, R> Function<T, Either<L, R>> withRetries(final Function<T, R> f,
+                                                                  final Predicate<R> predicate,
+                                                                  final Function<Exception, L> errorMapper,
+                                                                  int retries,
+                                                                  final BackoffPolicy backoff) {
+        return withRetries(f, predicate, errorMapper, RetryPolicy.of(retries, backoff));
+    }
+
+    public static <T, L1, L2, R> Function<T, Either<L2, R>> eitherWithRetries(final Function<T, Either<L1, R>> f,
+                                                                              final Predicate<R> predicate,
+                                                                              final Function<Exception, L2> errorMapper,
+                                                                              int retries,
+                                                                              final BackoffPolicy backoff) {
+        return eitherWithRetries(f, predicate, errorMapper, RetryPolicy.of(retries, backoff));
+    }
+
+    public static <T> Supplier<T> withRetriesSupply(final Supplier<T> f,
+                                                    final Predicate<T> predicate,
+                                                    int retries,
+                                                    final BackoffPolicy backoff) {
+        return withRetriesSupply(f, predicate, RetryPolicy.of(retries, backoff));
+    }
+
+    public static <L, R> Supplier<Either<L, R>> withRetriesSupply(final Supplier<R> f,
+                                                                  final Predicate<R> predicate,
+                                                                  final Function<Exception, L> errorMapper,
+                                                                  int retries,
+                                                                  final BackoffPolicy backoff) {
+        return withRetriesSupply(f, predicate, errorMapper, RetryPolicy.of(retries, backoff));
+    }
+
+    public static <L1, L2, R> Supplier<Either<L2, R>> eitherWithRetriesSupply(final Supplier<Either<L1, R>> f,
+                                                                              final Predicate<R> predicate,
+                                                                              final Function<Exception, L2> errorMapper,
+                                                                              int retries,
+                                                                              final BackoffPolicy backoff) {
+        return eitherWithRetriesSupply(f, predicate, errorMapper, RetryPolicy.of(retries, backoff));
+    }
+
+    public static Runnable withRetriesRun(final Runnable f,
+                                          final Consumer<Throwable> errorHandler,
+                                          int retries,
+                                          final BackoffPolicy backoff) {
+        return withRetriesRun(f, errorHandler, RetryPolicy.of(retries, backoff));
+    }
+
+    public static <T, R> Function<T, R> withRetries(final Function<T, R> f,
+                                                    final Predicate<R> predicate,
+                                                    final RetryPolicy policy) {
+        return Objects.requireNonNull(policy).withRetries(f, predicate);
+    }
+
+    public static <T, L, R> Function<T, Either<L, R>> withRetries(final Function<T, R> f,
+                                                                  final Predicate<R> predicate,
+                                                                  final Function<Exception, L> errorMapper,
+                                                                  final RetryPolicy policy) {
+        return Objects.requireNonNull(policy).withRetries(f, predicate, errorMapper);
+    }
+
+    public static <T, L1, L2, R> Function<T, Either<L2, R>> eitherWithRetries(final Function<T, Either<L1, R>> f,
+                                                                              final Predicate<R> predicate,
+                                                                              final Function<Exception, L2> errorMapper,
+                                                                              final RetryPolicy policy) {
+        return Objects.requireNonNull(policy).eitherWithRetries(f, predicate, errorMapper);
+    }
+
+    /**
+     * Only lefts matching {@code retryableLeft} are retried, other lefts are returned immediately.
+     */
+    public static <T, L, R> Function<T, Either<L, R>> eitherWithRetries(final Function<T, Either<L, R>> f,
+                                                                        final Predicate<R> predicate,
+                                                                        final Function<Exception, L> errorMapper,
+                                                                        final Predicate<L> retryableLeft,
+                                                                        final RetryPolicy policy) {
+        return Objects.requireNonNull(policy).eitherWithRetries(f, predicate, errorMapper, retryableLeft);
+    }
+
+    public static <T> Supplier<T> withRetriesSupply(final Supplier<T> f,
+                                                    final Predicate<T> predicate,
+                                                    final RetryPolicy policy) {
+        return Objects.requireNonNull(policy).withRetriesSupply(f, predicate);
+    }
+
+    public static <L, R> Supplier<Either<L, R>> withRetriesSupply(final Supplier<R> f,
+                                                                  final Predicate<R> predicate,
+                                                                  final Function<Exception, L> errorMapper,
+                                                                  final RetryPolicy policy) {
+        return Objects.requireNonNull(policy).withRetriesSupply(f, predicate, errorMapper);
+    }
+
+    public static <L1, L2, R> Supplier<Either<L2, R>> eitherWithRetriesSupply(final Supplier<Either<L1, R>> f,
+                                                                              final Predicate<R> predicate,
+                                                                              final Function<Exception, L2> errorMapper,
+                                                                              final RetryPolicy policy) {
+        return Objects.requireNonNull(policy).eitherWithRetriesSupply(f, predicate, errorMapper);
+    }
+
+    public static <L, R> Supplier<Either<L, R>> eitherWithRetriesSupply(final Supplier<Either<L, R>> f,
+                                                                        final Predicate<R> predicate,
+                                                                        final Function<Exception, L> errorMapper,
+                                                                        final Predicate<L> retryableLeft,
+                                                                        final RetryPolicy policy) {
+        return Objects.requireNonNull(policy).eitherWithRetriesSupply(f, predicate, errorMapper, retryableLeft);
+    }
+
+    public static Runnable withRetriesRun(final Runnable f,
+                                          final Consumer<Throwable> errorHandler,
+                                          final RetryPolicy policy) {
+        return Objects.requireNonNull(policy).withRetriesRun(f, errorHandler);
+    }
+
+    /**
+     * Each attempt only passes on the elements of the batch that have not yet got an accepted result.
+     */
+    public static <T, L, R> Function<List<T>, Map<T, Either<L, R>>> withBatchRetries(
+            final Function<List<T>, Map<T, Either<L, R>>> f,
+            final Predicate<R> predicate,
+            final Function<Exception, L> errorMapper,
+            final RetryPolicy policy) {
+        return Objects.requireNonNull(policy).withBatchRetries(f, predicate, errorMapper);
+    }
+
+    public static <T, L, R> Function<List<T>, Map<T, Either<L, R>>> withBatchRetries(
+            final Function<List<T>, Map<T, Either<L, R>>> f,
+            final Predicate<R> predicate,
+            final Function<Exception, L> errorMapper,
+            final Predicate<L> retryableLeft,
+            final RetryPolicy policy) {
+        return Objects.requireNonNull(policy).withBatchRetries(f, predicate, errorMapper, retryableLeft);
     }
 
     public static class RetryException extends RuntimeException {
@@ -231,5 +236,13 @@ public class Retry {
         public RetryException(String reason, Throwable cause) {
             super(reason, cause);
         }
+
+        /**
+         * A stackless exception (without a writable stack trace) also has suppression disabled, so that an instance
+         * can be shared.
+         */
+        public RetryException(String reason, Throwable cause, boolean writableStackTrace) {
+            super(reason, cause, writableStackTrace, writableStackTrace);
+        }
     }
 }
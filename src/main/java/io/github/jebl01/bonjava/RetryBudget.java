@@ -0,0 +1,103 @@
+package io.github.jebl01.bonjava;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket shared by any number of retry wrappers. Every successful call deposits {@code retryRatio} of a
+ * token (up to {@code maxBalance} tokens) and every retry withdraws a whole token. On top of that,
+ * {@code minRetriesPerSecond} retries are always allowed, so that a cold or idle service can still retry.
+ * When the budget is depleted, retry wrappers fail fast with a {@link Retry.RetryException} instead of waiting.
+ */
+public final class RetryBudget {
+    private static final long SCALE = 1000;
+
+    private final long depositAmount;
+    private final long maxBalance;
+    private final long reserveIntervalNanos;
+    private final long reserveToleranceNanos;
+    private final AtomicLong balance;
+    private final AtomicLong reserveArrival;
+    private final TimeSource time;
+
+    private RetryBudget(double retryRatio, int maxBalance, int minRetriesPerSecond, TimeSource time) {
+        this.depositAmount = (long) (retryRatio * SCALE);
+        this.maxBalance = maxBalance * SCALE;
+        this.reserveIntervalNanos = minRetriesPerSecond == 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / minRetriesPerSecond;
+        this.reserveToleranceNanos = TimeUnit.SECONDS.toNanos(1) - reserveIntervalNanos;
+        this.balance = new AtomicLong(this.maxBalance);
+        this.time = time;
+        this.reserveArrival = new AtomicLong(time.nanoTime());
+    }
+
+    /**
+     * @param retryRatio          share of a retry earned by each successful call, e.g. 0.1 allows retrying 10% of the
+     *                            calls
+     * @param maxBalance          the maximum number of retries that can be saved up (and the initial balance)
+     * @param minRetriesPerSecond retries allowed per second regardless of the balance
+     */
+    public static RetryBudget create(double retryRatio, int maxBalance, int minRetriesPerSecond) {
+        return create(retryRatio, maxBalance, minRetriesPerSecond, TimeSource.system());
+    }
+
+    /**
+     * Like {@link #create(double, int, int)}, measuring {@code minRetriesPerSecond} with the given time source.
+     */
+    public static RetryBudget create(double retryRatio, int maxBalance, int minRetriesPerSecond, TimeSource time) {
+        Objects.requireNonNull(time);
+        if(retryRatio < 0 || retryRatio > 1000) {
+            throw new IllegalArgumentException("retryRatio");
+        }
+        if(maxBalance < 0) {
+            throw new IllegalArgumentException("maxBalance");
+        }
+        if(minRetriesPerSecond < 0) {
+            throw new IllegalArgumentException("minRetriesPerSecond");
+        }
+        return new RetryBudget(retryRatio, maxBalance, minRetriesPerSecond, time);
+    }
+
+    public double available() {
+        return (double) balance.get() / SCALE;
+    }
+
+    void deposit() {
+        long current;
+        do {
+            current = balance.get();
+            if(current >= maxBalance) {
+                return;
+            }
+        } while(!balance.compareAndSet(current, Math.min(maxBalance, current + depositAmount)));
+    }
+
+    boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if(current < SCALE) {
+                return tryWithdrawReserve();
+            }
+        } while(!balance.compareAndSet(current, current - SCALE));
+        return true;
+    }
+
+    private boolean tryWithdrawReserve() {
+        if(reserveIntervalNanos == 0) {
+            return false;
+        }
+        final long now = time.nanoTime();
+        long arrival;
+        long next;
+        do {
+            arrival = reserveArrival.get();
+            final long earliest = arrival - now > 0 ? arrival : now;
+            if(earliest - now > reserveToleranceNanos) {
+                return false;
+            }
+            next = earliest + reserveIntervalNanos;
+        } while(!reserveArrival.compareAndSet(arrival, next));
+        return true;
+    }
+}
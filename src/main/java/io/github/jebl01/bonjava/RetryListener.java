@@ -0,0 +1,36 @@
+package io.github.jebl01.bonjava;
+
+/**
+ * Receives the events of the retry wrappers using a {@link RetryPolicy} built with a listener. Attempts are numbered
+ * from 1 and all durations are in nanoseconds. Implementations are called on the calling (or completing) thread and
+ * must be thread safe and fast.
+ */
+public interface RetryListener {
+    default void onAttemptStart(int attempt) {
+    }
+
+    /**
+     * The attempt threw (or completed with) an exception.
+     */
+    default void onAttemptFailure(int attempt, Throwable failure, long latencyNanos) {
+    }
+
+    /**
+     * The attempt returned a result not accepted by the predicate.
+     */
+    default void onAttemptRejected(int attempt, long latencyNanos) {
+    }
+
+    default void onBackoff(int retry, long millisecWait) {
+    }
+
+    default void onSuccess(int attempts, long elapsedNanos) {
+    }
+
+    /**
+     * @param reason what ended the retries (usually a {@link Retry.RetryException}), or null if a non retryable
+     *               left was returned
+     */
+    default void onGiveUp(int attempts, Throwable reason, long elapsedNanos) {
+    }
+}
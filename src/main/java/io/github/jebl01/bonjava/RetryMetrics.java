@@ -0,0 +1,148 @@
+package io.github.jebl01.bonjava;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free {@link RetryListener} counting calls, attempts and outcomes, and keeping histograms of attempt and call
+ * latencies. Can be shared by any number of policies.
+ */
+public final class RetryMetrics implements RetryListener {
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder attemptFailures = new LongAdder();
+    private final LongAdder attemptRejections = new LongAdder();
+    private final LongAdder backoffs = new LongAdder();
+    private final LongAdder backoffMillis = new LongAdder();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder retriedCalls = new LongAdder();
+    private final LongAdder giveUps = new LongAdder();
+    private final LatencyHistogram attemptLatencies = new LatencyHistogram();
+    private final LatencyHistogram callLatencies = new LatencyHistogram();
+
+    @Override
+    public void onAttemptStart(int attempt) {
+        if(attempt == 1) {
+            calls.increment();
+        }
+        attempts.increment();
+    }
+
+    @Override
+    public void onAttemptFailure(int attempt, Throwable failure, long latencyNanos) {
+        attemptFailures.increment();
+        attemptLatencies.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+    }
+
+    @Override
+    public void onAttemptRejected(int attempt, long latencyNanos) {
+        attemptRejections.increment();
+        attemptLatencies.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+    }
+
+    @Override
+    public void onBackoff(int retry, long millisecWait) {
+        backoffs.increment();
+        backoffMillis.add(millisecWait);
+    }
+
+    @Override
+    public void onSuccess(int attempts, long elapsedNanos) {
+        successes.increment();
+        onCallEnd(attempts, elapsedNanos);
+    }
+
+    @Override
+    public void onGiveUp(int attempts, Throwable reason, long elapsedNanos) {
+        giveUps.increment();
+        onCallEnd(attempts, elapsedNanos);
+    }
+
+    private void onCallEnd(int attempts, long elapsedNanos) {
+        if(attempts > 1) {
+            retriedCalls.increment();
+        }
+        callLatencies.record(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+    }
+
+    public long calls() {
+        return calls.sum();
+    }
+
+    public long attempts() {
+        return attempts.sum();
+    }
+
+    public long attemptFailures() {
+        return attemptFailures.sum();
+    }
+
+    public long attemptRejections() {
+        return attemptRejections.sum();
+    }
+
+    public long backoffs() {
+        return backoffs.sum();
+    }
+
+    /**
+     * @return the total time spent (or scheduled to be spent) backing off
+     */
+    public long backoffMillis() {
+        return backoffMillis.sum();
+    }
+
+    public long successes() {
+        return successes.sum();
+    }
+
+    /**
+     * @return the number of finished calls that needed more than one attempt
+     */
+    public long retriedCalls() {
+        return retriedCalls.sum();
+    }
+
+    public long giveUps() {
+        return giveUps.sum();
+    }
+
+    /**
+     * @return the approximate attempt latency (including attempts that failed) at the given percentile (0 - 1), or -1
+     * if no attempt has finished
+     */
+    public long attemptLatencyMicros(double percentile) {
+        return attemptLatencies.percentile(percentile);
+    }
+
+    /**
+     * @return the approximate latency of finished calls, including all attempts and backoffs, at the given percentile
+     * (0 - 1), or -1 if no call has finished
+     */
+    public long callLatencyMicros(double percentile) {
+        return callLatencies.percentile(percentile);
+    }
+
+    /**
+     * @return all counters, and the median and 99th percentile latencies, by name (e.g. for exporting)
+     */
+    public Map<String, Long> snapshot() {
+        final Map<String, Long> snapshot = new LinkedHashMap<>();
+        snapshot.put("calls", calls());
+        snapshot.put("attempts", attempts());
+        snapshot.put("attemptFailures", attemptFailures());
+        snapshot.put("attemptRejections", attemptRejections());
+        snapshot.put("backoffs", backoffs());
+        snapshot.put("backoffMillis", backoffMillis());
+        snapshot.put("successes", successes());
+        snapshot.put("retriedCalls", retriedCalls());
+        snapshot.put("giveUps", giveUps());
+        snapshot.put("attemptLatencyMicrosP50", attemptLatencyMicros(0.5));
+        snapshot.put("attemptLatencyMicrosP99", attemptLatencyMicros(0.99));
+        snapshot.put("callLatencyMicrosP50", callLatencyMicros(0.5));
+        snapshot.put("callLatencyMicrosP99", callLatencyMicros(0.99));
+        return snapshot;
+    }
+}
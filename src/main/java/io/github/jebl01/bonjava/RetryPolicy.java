@@ -0,0 +1,707 @@
+package io.github.jebl01.bonjava;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * An immutable retry configuration. Create it once and use it to decorate any number of functions; everything that
+ * can be is resolved when decorating, so a call that succeeds on the first attempt allocates nothing besides what the
+ * decorated function itself does (and the {@link Either} holding the result, where one is returned).
+ */
+public final class RetryPolicy {
+    private static final int MAX_CAUSE_DEPTH = 32;
+
+    final int retries;
+    final BackoffPolicy backoff;
+    final long attemptTimeoutNanos;
+    final long maxDurationNanos;
+    final ExecutorService executor;
+    final RetryBudget budget;
+    private final Class<?>[] retryOn;
+    private final Class<?>[] abortOn;
+    private final Predicate<? super Throwable> retryIf;
+    private final RetryListener listener;
+    private final TimeSource timeSource;
+    private final boolean stackTraces;
+    //shared by all calls giving up the same way, when exceptions are stackless
+    private final Retry.RetryException exhausted;
+
+    private RetryPolicy(Builder builder) {
+        this.retries = builder.retries;
+        this.backoff = builder.backoff;
+        this.attemptTimeoutNanos = builder.attemptTimeoutNanos;
+        this.maxDurationNanos = builder.maxDurationNanos;
+        this.executor = builder.executor;
+        this.budget = builder.budget;
+        this.retryOn = builder.retryOn.toArray(new Class<?>[0]);
+        this.abortOn = builder.abortOn.toArray(new Class<?>[0]);
+        this.retryIf = builder.retryIf;
+        this.listener = builder.listener;
+        this.timeSource = builder.timeSource;
+        this.stackTraces = builder.stackTraces;
+        this.exhausted = stackTraces ? null : retryException("retried " + retries + " times but failed", null);
+    }
+
+    public static RetryPolicy of(int retries, BackoffPolicy backoff) {
+        return builder(retries).backoff(backoff).build();
+    }
+
+    public static Builder builder(int retries) {
+        return new Builder(retries);
+    }
+
+    public <T, R> Function<T, R> withRetries(final Function<T, R> f, final Predicate<R> predicate) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(predicate);
+        final Function<R, R> resultMapper = Function.identity();
+        final Function<Exception, R> errorMapper = RetryPolicy::rethrow;
+        return t -> execute(f, t, predicate, never(), resultMapper, errorMapper);
+    }
+
+    public <T, L, R> Function<T, Either<L, R>> withRetries(final Function<T, R> f,
+                                                           final Predicate<R> predicate,
+                                                           final Function<Exception, L> errorMapper) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(predicate);
+        Objects.requireNonNull(errorMapper);
+        final Function<R, Either<L, R>> resultMapper = Either::right;
+        final Function<Exception, Either<L, R>> leftMapper = e -> Either.left(errorMapper.apply(e));
+        return t -> execute(f, t, predicate, never(), resultMapper, leftMapper);
+    }
+
+    public <T, L1, L2, R> Function<T, Either<L2, R>> eitherWithRetries(final Function<T, Either<L1, R>> f,
+                                                                       final Predicate<R> predicate,
+                                                                       final Function<Exception, L2> errorMapper) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(predicate);
+        Objects.requireNonNull(errorMapper);
+        final Predicate<Either<L1, R>> accept = result -> result.isRight() && predicate.test(result.rightValue());
+        final Function<Either<L1, R>, Either<L2, R>> resultMapper = RetryPolicy::retypeRight;
+        final Function<Exception, Either<L2, R>> leftMapper = e -> Either.left(errorMapper.apply(e));
+        return t -> execute(f, t, accept, never(), resultMapper, leftMapper);
+    }
+
+    /**
+     * Like {@link #eitherWithRetries(Function, Predicate, Function)}, but only lefts matching {@code retryableLeft} are
+     * retried, other lefts are returned immediately.
+     */
+    public <T, L, R> Function<T, Either<L, R>> eitherWithRetries(final Function<T, Either<L, R>> f,
+                                                                 final Predicate<R> predicate,
+                                                                 final Function<Exception, L> errorMapper,
+                                                                 final Predicate<L> retryableLeft) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(predicate);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(retryableLeft);
+        final Predicate<Either<L, R>> accept = result -> result.isRight() && predicate.test(result.rightValue());
+        final Predicate<Either<L, R>> permanent = result -> result.isLeft() && !retryableLeft.test(result.leftValue());
+        final Function<Either<L, R>, Either<L, R>> resultMapper = Function.identity();
+        final Function<Exception, Either<L, R>> leftMapper = e -> Either.left(errorMapper.apply(e));
+        return t -> execute(f, t, accept, permanent, resultMapper, leftMapper);
+    }
+
+    public <T> Supplier<T> withRetriesSupply(final Supplier<T> f, final Predicate<T> predicate) {
+        Objects.requireNonNull(f);
+        final Function<Void, T> fn = withRetries(ignored -> f.get(), predicate);
+        return () -> fn.apply(null);
+    }
+
+    public <L, R> Supplier<Either<L, R>> withRetriesSupply(final Supplier<R> f,
+                                                           final Predicate<R> predicate,
+                                                           final Function<Exception, L> errorMapper) {
+        Objects.requireNonNull(f);
+        final Function<Void, Either<L, R>> fn = withRetries(ignored -> f.get(), predicate, errorMapper);
+        return () -> fn.apply(null);
+    }
+
+    public <L1, L2, R> Supplier<Either<L2, R>> eitherWithRetriesSupply(final Supplier<Either<L1, R>> f,
+                                                                       final Predicate<R> predicate,
+                                                                       final Function<Exception, L2> errorMapper) {
+        Objects.requireNonNull(f);
+        final Function<Void, Either<L2, R>> fn = eitherWithRetries(ignored -> f.get(), predicate, errorMapper);
+        return () -> fn.apply(null);
+    }
+
+    public <L, R> Supplier<Either<L, R>> eitherWithRetriesSupply(final Supplier<Either<L, R>> f,
+                                                                 final Predicate<R> predicate,
+                                                                 final Function<Exception, L> errorMapper,
+                                                                 final Predicate<L> retryableLeft) {
+        Objects.requireNonNull(f);
+        final Function<Void, Either<L, R>> fn = eitherWithRetries(
+                ignored -> f.get(),
+                predicate,
+                errorMapper,
+                retryableLeft);
+        return () -> fn.apply(null);
+    }
+
+    public Runnable withRetriesRun(final Runnable f, final Consumer<Throwable> errorHandler) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(errorHandler);
+        final Function<Void, Boolean> fn = ignored -> {
+            f.run();
+            return Boolean.TRUE;
+        };
+        final Predicate<Boolean> accept = r -> true;
+        final Function<Boolean, Boolean> resultMapper = Function.identity();
+        final Function<Exception, Boolean> errorMapper = e -> {
+            errorHandler.accept(e);
+            return Boolean.TRUE;
+        };
+        return () -> execute(fn, null, accept, never(), resultMapper, errorMapper);
+    }
+
+    /**
+     * Retries the elements of a batch individually: each attempt only passes on the elements that have not yet got
+     * an accepted result. Elements missing from the result of an attempt are retried too. The returned map has an
+     * entry for every (distinct) element, in the order of the batch.
+     */
+    public <T, L, R> Function<List<T>, Map<T, Either<L, R>>> withBatchRetries(
+            final Function<List<T>, Map<T, Either<L, R>>> f,
+            final Predicate<R> predicate,
+            final Function<Exception, L> errorMapper) {
+        return withBatchRetries(f, predicate, errorMapper, left -> true);
+    }
+
+    /**
+     * Like {@link #withBatchRetries(Function, Predicate, Function)}, but only lefts matching {@code retryableLeft}
+     * are retried, other lefts are final.
+     */
+    public <T, L, R> Function<List<T>, Map<T, Either<L, R>>> withBatchRetries(
+            final Function<List<T>, Map<T, Either<L, R>>> f,
+            final Predicate<R> predicate,
+            final Function<Exception, L> errorMapper,
+            final Predicate<L> retryableLeft) {
+        Objects.requireNonNull(f);
+        Objects.requireNonNull(predicate);
+        Objects.requireNonNull(errorMapper);
+        Objects.requireNonNull(retryableLeft);
+        return batch -> executeBatch(f, Objects.requireNonNull(batch), predicate, errorMapper, retryableLeft);
+    }
+
+    private <T, L, R> Map<T, Either<L, R>> executeBatch(Function<List<T>, Map<T, Either<L, R>>> f,
+                                                        List<T> batch,
+                                                        Predicate<R> predicate,
+                                                        Function<Exception, L> errorMapper,
+                                                        Predicate<L> retryableLeft) {
+        final Map<T, Either<L, R>> results = new LinkedHashMap<>((int) (batch.size() / 0.75f) + 1);
+        for(T t : batch) {
+            results.put(t, null);
+        }
+        final Map<T, Either<L, R>> lastLefts = new HashMap<>();
+        List<T> pending = new ArrayList<>(results.keySet());
+        final CancellationToken token = CancellationToken.currentOrNull();
+        final Deadline deadline = newDeadline();
+        final long start = now();
+        boolean allRight = true;
+        Exception stop = null;
+        Throwable lastFailure = null;
+        long millisecWait = 0;
+        int attempts = 0;
+        while(attempts < retries && !pending.isEmpty() && stop == null) {
+            if(attempts > 0) {
+                millisecWait = backoff.delay(attempts, millisecWait);
+                stop = checkRetry(attempts, millisecWait, deadline, lastFailure);
+                if(stop != null) {
+                    break;
+                }
+                onBackoff(attempts, millisecWait);
+                try {
+                    sleep(token, millisecWait);
+                }
+                catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stop = e;
+                    break;
+                }
+            }
+            if(token != null && token.isCancelled()) {
+                stop = cancelled(attempts);
+                break;
+            }
+            attempts++;
+            final long attemptStart = onAttemptStart(attempts);
+            final Map<T, Either<L, R>> attemptResults;
+            try {
+                attemptResults = attempt(f, pending, deadline, token);
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                onAttemptFailure(attempts, e, attemptStart);
+                stop = e;
+                break;
+            }
+            catch(Throwable e) {
+                onAttemptFailure(attempts, e, attemptStart);
+                if(token != null && token.isCancelled()) {
+                    stop = cancelled(attempts);
+                    break;
+                }
+                lastFailure = e;
+                lastLefts.clear();
+                stop = checkRetryable(attempts, e);
+                continue;
+            }
+            lastFailure = null;
+            final List<T> failed = new ArrayList<>();
+            for(T t : pending) {
+                final Either<L, R> result = attemptResults == null ? null : attemptResults.get(t);
+                if(result == null) {
+                    lastLefts.remove(t);
+                    failed.add(t);
+                }
+                else if(result.isRight() && predicate.test(result.rightValue())) {
+                    results.put(t, result);
+                    lastLefts.remove(t);
+                }
+                else if(result.isLeft() && !retryableLeft.test(result.leftValue())) {
+                    results.put(t, result);
+                    lastLefts.remove(t);
+                    allRight = false;
+                }
+                else {
+                    if(result.isLeft()) {
+                        lastLefts.put(t, result);
+                    }
+                    else {
+                        lastLefts.remove(t);
+                    }
+                    failed.add(t);
+                }
+            }
+            if(!failed.isEmpty()) {
+                onAttemptRejected(attempts, attemptStart);
+            }
+            pending = failed;
+        }
+        if(pending.isEmpty()) {
+            if(allRight) {
+                onSuccess(attempts, start);
+            }
+            else {
+                onGiveUp(attempts, null, start);
+            }
+            return results;
+        }
+        final Exception reason;
+        if(stop != null) {
+            reason = stop;
+        }
+        else if(lastFailure != null) {
+            reason = retryException("retried " + retries + " times but failed with exception", lastFailure);
+        }
+        else {
+            reason = exhausted();
+        }
+        onGiveUp(attempts, reason, start);
+        Either<L, R> failure = null;
+        for(T t : pending) {
+            Either<L, R> result = lastLefts.get(t);
+            if(result == null) {
+                if(failure == null) {
+                    failure = Either.left(errorMapper.apply(reason));
+                }
+                result = failure;
+            }
+            results.put(t, result);
+        }
+        return results;
+    }
+
+    private <T, A, O> O execute(Function<T, A> f,
+                                T t,
+                                Predicate<A> accept,
+                                Predicate<A> permanent,
+                                Function<A, O> resultMapper,
+                                Function<Exception, O> errorMapper) {
+        final CancellationToken token = CancellationToken.currentOrNull();
+        final Deadline deadline = newDeadline();
+        final long start = now();
+        Throwable lastFailure = null;
+        long millisecWait = 0;
+        for(int i = 0; i < retries; i++) {
+            if(i > 0) {
+                millisecWait = backoff.delay(i, millisecWait);
+                final Retry.RetryException stop = checkRetry(i, millisecWait, deadline, lastFailure);
+                if(stop != null) {
+                    return giveUp(i, stop, start, errorMapper);
+                }
+                onBackoff(i, millisecWait);
+                try {
+                    sleep(token, millisecWait);
+                }
+                catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return giveUp(i, e, start, errorMapper);
+                }
+            }
+            if(token != null && token.isCancelled()) {
+                return giveUp(i, cancelled(i), start, errorMapper);
+            }
+            final long attemptStart = onAttemptStart(i + 1);
+            try {
+                final A result = attempt(f, t, deadline, token);
+                if(accept.test(result)) {
+                    onSuccess(i + 1, start);
+                    return resultMapper.apply(result);
+                }
+                onAttemptRejected(i + 1, attemptStart);
+                if(permanent.test(result)) {
+                    onGiveUp(i + 1, null, start);
+                    return resultMapper.apply(result);
+                }
+                lastFailure = null;
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                onAttemptFailure(i + 1, e, attemptStart);
+                return giveUp(i + 1, e, start, errorMapper);
+            }
+            catch(Throwable e) {
+                onAttemptFailure(i + 1, e, attemptStart);
+                if(token != null && token.isCancelled()) {
+                    return giveUp(i + 1, cancelled(i + 1), start, errorMapper);
+                }
+                final Retry.RetryException abort = checkRetryable(i + 1, e);
+                if(abort != null) {
+                    return giveUp(i + 1, abort, start, errorMapper);
+                }
+                if(i == retries - 1) {
+                    return giveUp(i + 1, retryException(
+                            "retried " + retries + " times but failed with exception", e), start, errorMapper);
+                }
+                lastFailure = e;
+            }
+        }
+        return giveUp(retries, exhausted(), start, errorMapper);
+    }
+
+    /**
+     * Sleeps, returning early if the token is cancelled.
+     */
+    private void sleep(CancellationToken token, long millisecWait) throws InterruptedException {
+        if(token == null) {
+            timeSource.sleep(millisecWait);
+        }
+        else {
+            token.sleep(timeSource, millisecWait);
+        }
+    }
+
+    static CancellationException cancelled(int attempts) {
+        return new CancellationException("cancelled after " + attempts + " attempts");
+    }
+
+    private <O> O giveUp(int attempts, Exception reason, long start, Function<Exception, O> errorMapper) {
+        onGiveUp(attempts, reason, start);
+        return errorMapper.apply(reason);
+    }
+
+    private <T, A> A attempt(Function<T, A> f, T t, Deadline deadline, CancellationToken token) throws Exception {
+        final Deadline attemptDeadline = newAttemptDeadline(deadline);
+        if(attemptDeadline == null) {
+            return f.apply(t);
+        }
+        if(attemptTimeoutNanos == 0) {
+            return Deadline.callWith(attemptDeadline, () -> f.apply(t));
+        }
+        //the attempt runs on another thread, so the token has to be passed on, and cancels the attempt too
+        final Future<A> future = executor().submit(() -> CancellationToken.callWith(
+                token,
+                () -> Deadline.callWith(attemptDeadline, () -> f.apply(t))));
+        final CancellationToken.Registration registration = token == null ? null : token.onCancel(() -> future.cancel(true));
+        try {
+            return future.get(attemptDeadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        }
+        catch(ExecutionException e) {
+            throw SneakyThrow.<Exception>sneakyException(e.getCause());
+        }
+        finally {
+            future.cancel(true);
+            if(registration != null) {
+                registration.close();
+            }
+        }
+    }
+
+    private static <A> Predicate<A> never() {
+        return a -> false;
+    }
+
+    private static <R> R rethrow(Exception e) {
+        SneakyThrow.<RuntimeException>sneakyException(e);
+        return null;
+    }
+
+    /**
+     * A right holds no left value, so it can be passed on as is instead of being copied.
+     */
+    @SuppressWarnings("unchecked")
+    static <L1, L2, R> Either<L2, R> retypeRight(Either<L1, R> right) {
+        return (Either<L2, R>) (Either<?, R>) right;
+    }
+
+    Deadline newDeadline() {
+        return maxDurationNanos > 0 ? Deadline.after(maxDurationNanos, TimeUnit.NANOSECONDS, timeSource) : null;
+    }
+
+    Deadline newAttemptDeadline(Deadline deadline) {
+        return attemptTimeoutNanos > 0
+                ? Deadline.after(attemptTimeoutNanos, TimeUnit.NANOSECONDS, timeSource).min(deadline)
+                : deadline;
+    }
+
+    Retry.RetryException checkRetry(int attempts, long millisecWait, Deadline deadline, Throwable lastFailure) {
+        if(deadline != null && deadline.remaining(TimeUnit.MILLISECONDS) <= millisecWait) {
+            return retryException("deadline exceeded after " + attempts + " attempts", lastFailure);
+        }
+        if(budget != null && !budget.tryWithdraw()) {
+            return retryException("retry budget exhausted after " + attempts + " attempts", lastFailure);
+        }
+        return null;
+    }
+
+    /**
+     * @return an exception to fail with if the given failure should not be retried, otherwise null
+     */
+    Retry.RetryException checkRetryable(int attempts, Throwable failure) {
+        if(isRetryable(failure)) {
+            return null;
+        }
+        return retryException("aborted after " + attempts + " attempts on non retryable exception", failure);
+    }
+
+    Retry.RetryException retryException(String reason, Throwable cause) {
+        return new Retry.RetryException(reason, cause, stackTraces);
+    }
+
+    /**
+     * @return the exception for giving up after all retries were rejected
+     */
+    Retry.RetryException exhausted() {
+        return exhausted != null ? exhausted : retryException("retried " + retries + " times but failed", null);
+    }
+
+    private boolean isRetryable(Throwable failure) {
+        if(abortOn.length > 0 && causedBy(failure, abortOn)) {
+            return false;
+        }
+        if(retryOn.length > 0 && !causedBy(failure, retryOn)) {
+            return false;
+        }
+        return retryIf == null || retryIf.test(failure);
+    }
+
+    private static boolean causedBy(Throwable failure, Class<?>[] types) {
+        Throwable current = failure;
+        for(int depth = 0; current != null && depth < MAX_CAUSE_DEPTH; depth++) {
+            for(Class<?> type : types) {
+                if(type.isInstance(current)) {
+                    return true;
+                }
+            }
+            current = current.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * @return the current time if there is a listener to report durations to, otherwise 0
+     */
+    long now() {
+        return listener != null ? timeSource.nanoTime() : 0;
+    }
+
+    long onAttemptStart(int attempt) {
+        if(listener == null) {
+            return 0;
+        }
+        listener.onAttemptStart(attempt);
+        return timeSource.nanoTime();
+    }
+
+    void onAttemptFailure(int attempt, Throwable failure, long attemptStart) {
+        if(listener != null) {
+            listener.onAttemptFailure(attempt, failure, timeSource.nanoTime() - attemptStart);
+        }
+    }
+
+    void onAttemptRejected(int attempt, long attemptStart) {
+        if(listener != null) {
+            listener.onAttemptRejected(attempt, timeSource.nanoTime() - attemptStart);
+        }
+    }
+
+    void onBackoff(int retry, long millisecWait) {
+        if(listener != null) {
+            listener.onBackoff(retry, millisecWait);
+        }
+    }
+
+    void onSuccess(int attempts, long start) {
+        if(budget != null) {
+            budget.deposit();
+        }
+        if(listener != null) {
+            listener.onSuccess(attempts, timeSource.nanoTime() - start);
+        }
+    }
+
+    void onGiveUp(int attempts, Throwable reason, long start) {
+        if(listener != null) {
+            listener.onGiveUp(attempts, reason, timeSource.nanoTime() - start);
+        }
+    }
+
+    ExecutorService executor() {
+        return executor != null ? executor : DefaultExecutor.INSTANCE;
+    }
+
+    public static class Builder {
+        private final int retries;
+        private BackoffPolicy backoff = BackoffPolicy.constant(0);
+        private long attemptTimeoutNanos;
+        private long maxDurationNanos;
+        private ExecutorService executor;
+        private RetryBudget budget;
+        private final List<Class<? extends Throwable>> retryOn = new ArrayList<>();
+        private final List<Class<? extends Throwable>> abortOn = new ArrayList<>();
+        private Predicate<? super Throwable> retryIf;
+        private RetryListener listener;
+        private TimeSource timeSource = TimeSource.system();
+        private boolean stackTraces = !Boolean.getBoolean("bonjava.stacklessExceptions");
+
+        private Builder(int retries) {
+            if(retries < 0) {
+                throw new IllegalArgumentException("retries");
+            }
+            this.retries = retries;
+        }
+
+        public Builder backoff(BackoffPolicy backoff) {
+            this.backoff = Objects.requireNonNull(backoff);
+            return this;
+        }
+
+        /**
+         * Abandons (and cancels) an attempt that has not completed within the given timeout. Synchronous attempts
+         * are then executed on the {@link #executor(ExecutorService) executor}.
+         */
+        public Builder attemptTimeout(long timeout, TimeUnit unit) {
+            Objects.requireNonNull(unit);
+            if(timeout <= 0) {
+                throw new IllegalArgumentException("timeout");
+            }
+            this.attemptTimeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        /**
+         * No attempts are started, and no backoff is waited for, after the given time has passed since the first
+         * attempt was started.
+         */
+        public Builder maxDuration(long duration, TimeUnit unit) {
+            Objects.requireNonNull(unit);
+            if(duration <= 0) {
+                throw new IllegalArgumentException("duration");
+            }
+            this.maxDurationNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public Builder executor(ExecutorService executor) {
+            this.executor = Objects.requireNonNull(executor);
+            return this;
+        }
+
+        /**
+         * Retries are only made while the (possibly shared) budget allows it.
+         */
+        public Builder budget(RetryBudget budget) {
+            this.budget = Objects.requireNonNull(budget);
+            return this;
+        }
+
+        /**
+         * Only failures of the given type, or caused by it, are retried. Can be called several times to retry on
+         * any of the types.
+         */
+        public Builder retryOn(Class<? extends Throwable> type) {
+            retryOn.add(Objects.requireNonNull(type));
+            return this;
+        }
+
+        /**
+         * Failures of the given type, or caused by it, are never retried, even if matched by
+         * {@link #retryOn(Class)}. Can be called several times.
+         */
+        public Builder abortOn(Class<? extends Throwable> type) {
+            abortOn.add(Objects.requireNonNull(type));
+            return this;
+        }
+
+        /**
+         * Only failures matching the predicate (and the type rules, if any) are retried.
+         */
+        public Builder retryIf(Predicate<? super Throwable> predicate) {
+            this.retryIf = Objects.requireNonNull(predicate);
+            return this;
+        }
+
+        /**
+         * Reports attempts and outcomes to the given listener, e.g. a (possibly shared) {@link RetryMetrics}.
+         */
+        public Builder listener(RetryListener listener) {
+            this.listener = Objects.requireNonNull(listener);
+            return this;
+        }
+
+        /**
+         * The clock and sleeper to use for deadlines, backoffs and listener durations (e.g. a {@link VirtualTime} for
+         * tests and simulations). Attempt timeouts and {@link AsyncRetry} backoffs are still waited for by the
+         * executor and scheduler.
+         */
+        public Builder timeSource(TimeSource timeSource) {
+            this.timeSource = Objects.requireNonNull(timeSource);
+            return this;
+        }
+
+        /**
+         * Create the {@link Retry.RetryException}s to give up with without stack traces, which are costly to fill in
+         * when lots of calls fail. Causes are still kept, and an instance is shared by all calls exhausting their
+         * retries without a failure. The default can be set with the system property
+         * {@code bonjava.stacklessExceptions}.
+         */
+        public Builder stacklessExceptions(boolean stackless) {
+            this.stackTraces = !stackless;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+
+    private static class DefaultExecutor {
+        private static final ExecutorService INSTANCE = Executors.newCachedThreadPool(r -> {
+            final Thread thread = new Thread(r, "bonjava-retry-attempt");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,223 @@
+package io.github.jebl01.bonjava;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * A stream stage applying a function, with retries, to every element offered to it, and passing an {@link Either} per
+ * element on downstream. Retries are scheduled (see {@link AsyncRetry}), so no thread is blocked while backing off.
+ * <p>
+ * At most {@code maxInFlight} elements are processed at a time, and an element only stops counting once its result
+ * has been passed downstream, so a slow downstream slows down the intake too. Whenever elements stop counting, the
+ * {@code onRequest} callback is told how many more elements can be offered; with a reactive streams (or
+ * {@code java.util.concurrent.Flow}) subscription that is just {@code subscription::request}.
+ * <p>
+ * Results are passed downstream in the order the elements were offered, unless {@link Builder#unordered()} is used, in
+ * which case they are passed on as soon as they are done. Downstream is never called concurrently.
+ */
+public final class RetryProcessor<T, L, R> {
+    private final Function<T, CompletableFuture<Either<L, R>>> f;
+    private final Function<Exception, L> errorMapper;
+    private final int maxInFlight;
+    private final LongConsumer onRequest;
+    private final Consumer<Either<L, R>> downstream;
+    private final AtomicReferenceArray<Either<L, R>> ordered;
+    private final Queue<Either<L, R>> unordered;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicInteger drainers = new AtomicInteger();
+    private final AtomicBoolean completing = new AtomicBoolean();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private long emitted;
+
+    private RetryProcessor(Builder<T, L, R> builder, Consumer<Either<L, R>> downstream) {
+        this.f = AsyncRetry.withRetries(builder.f, builder.predicate, builder.errorMapper, builder.policy, builder.scheduler);
+        this.errorMapper = builder.errorMapper;
+        this.maxInFlight = builder.maxInFlight;
+        this.onRequest = builder.onRequest;
+        this.downstream = downstream;
+        this.ordered = builder.ordered ? new AtomicReferenceArray<>(maxInFlight) : null;
+        this.unordered = builder.ordered ? null : new ConcurrentLinkedQueue<>();
+    }
+
+    public static <T, L, R> Builder<T, L, R> builder(final Function<T, CompletableFuture<R>> f,
+                                                     final Predicate<R> predicate,
+                                                     final Function<Exception, L> errorMapper,
+                                                     final RetryPolicy policy,
+                                                     final ScheduledExecutorService scheduler) {
+        return new Builder<>(f, predicate, errorMapper, policy, scheduler);
+    }
+
+    /**
+     * Starts processing an element. Like {@code onNext}, must not be called concurrently.
+     *
+     * @return false, without processing the element, if {@code maxInFlight} elements are already being processed
+     */
+    public boolean offer(T t) {
+        if(completing.get()) {
+            throw new IllegalStateException("completed");
+        }
+        if(inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        final int slot = (int) (offered.getAndIncrement() % maxInFlight);
+        CompletableFuture<Either<L, R>> result;
+        try {
+            result = f.apply(t);
+        }
+        catch(Exception e) {
+            result = CompletableFuture.completedFuture(Either.left(errorMapper.apply(e)));
+        }
+        result.whenComplete((r, e) -> {
+            final Either<L, R> outcome = e == null ? r : Either.left(errorMapper.apply(toException(e)));
+            if(ordered != null) {
+                ordered.set(slot, outcome);
+            }
+            else {
+                unordered.offer(outcome);
+            }
+            drain();
+        });
+        return true;
+    }
+
+    /**
+     * No more elements will be offered; {@link #completion()} completes once all results have been passed downstream.
+     */
+    public void complete() {
+        completing.set(true);
+        drain();
+    }
+
+    /**
+     * Completes exceptionally if downstream throws, after which no more results are passed on.
+     */
+    public CompletableFuture<Void> completion() {
+        return completion;
+    }
+
+    /**
+     * @return the number of elements that can be offered right now
+     */
+    public int capacity() {
+        return Math.max(0, maxInFlight - inFlight.get());
+    }
+
+    private void drain() {
+        if(drainers.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            int done = 0;
+            try {
+                Either<L, R> next;
+                while(!completion.isDone() && (next = poll()) != null) {
+                    done++;
+                    downstream.accept(next);
+                }
+            }
+            catch(Throwable e) {
+                completion.completeExceptionally(e);
+            }
+            if(done > 0) {
+                inFlight.addAndGet(-done);
+                if(!completion.isDone()) {
+                    onRequest.accept(done);
+                }
+            }
+            if(completing.get() && inFlight.get() == 0) {
+                completion.complete(null);
+            }
+            missed = drainers.addAndGet(-missed);
+        } while(missed != 0);
+    }
+
+    private Either<L, R> poll() {
+        if(ordered == null) {
+            return unordered.poll();
+        }
+        final int slot = (int) (emitted % maxInFlight);
+        final Either<L, R> next = ordered.get(slot);
+        if(next != null) {
+            ordered.set(slot, null);
+            emitted++;
+        }
+        return next;
+    }
+
+    private static Exception toException(Throwable e) {
+        final Throwable cause = (e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null
+                ? e.getCause()
+                : e;
+        return cause instanceof Exception ? (Exception) cause : new ExecutionException(cause);
+    }
+
+    public static class Builder<T, L, R> {
+        private final Function<T, CompletableFuture<R>> f;
+        private final Predicate<R> predicate;
+        private final Function<Exception, L> errorMapper;
+        private final RetryPolicy policy;
+        private final ScheduledExecutorService scheduler;
+        private int maxInFlight = 16;
+        private boolean ordered = true;
+        private LongConsumer onRequest = n -> {
+        };
+
+        private Builder(Function<T, CompletableFuture<R>> f,
+                        Predicate<R> predicate,
+                        Function<Exception, L> errorMapper,
+                        RetryPolicy policy,
+                        ScheduledExecutorService scheduler) {
+            this.f = Objects.requireNonNull(f);
+            this.predicate = Objects.requireNonNull(predicate);
+            this.errorMapper = Objects.requireNonNull(errorMapper);
+            this.policy = Objects.requireNonNull(policy);
+            this.scheduler = Objects.requireNonNull(scheduler);
+        }
+
+        public Builder<T, L, R> maxInFlight(int maxInFlight) {
+            if(maxInFlight <= 0) {
+                throw new IllegalArgumentException("maxInFlight");
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Pass results on as soon as they are done, so that one slow element doesn't hold back the others.
+         */
+        public Builder<T, L, R> unordered() {
+            this.ordered = false;
+            return this;
+        }
+
+        /**
+         * Told how many more elements can be offered: {@code maxInFlight} when built, and then as results are passed on.
+         */
+        public Builder<T, L, R> onRequest(LongConsumer onRequest) {
+            this.onRequest = Objects.requireNonNull(onRequest);
+            return this;
+        }
+
+        public RetryProcessor<T, L, R> build(Consumer<Either<L, R>> downstream) {
+            final RetryProcessor<T, L, R> processor = new RetryProcessor<>(this, Objects.requireNonNull(downstream));
+            onRequest.accept(maxInFlight);
+            return processor;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package io.github.jebl01.bonjava;
+
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs a retry policy against a simulated dependency in virtual time, to see how it behaves (success rate, extra load,
+ * latency) for a given failure distribution without waiting for any real backoffs. Runs are deterministic for a given
+ * seed, jittered backoffs included.
+ */
+public final class RetrySimulation {
+
+    /**
+     * A simulated dependency.
+     */
+    public interface Model {
+        /**
+         * Makes one attempt, advancing the time by its latency.
+         *
+         * @return true if the attempt succeeded
+         */
+        boolean attempt(VirtualTime time, SplittableRandom random);
+
+        /**
+         * Every attempt takes {@code latencyMillis} and fails with the given probability.
+         */
+        static Model independentFailures(double failureProbability, long latencyMillis) {
+            validateProbability(failureProbability);
+            validateLatency(latencyMillis);
+            return (time, random) -> {
+                time.advance(latencyMillis, TimeUnit.MILLISECONDS);
+                return random.nextDouble() >= failureProbability;
+            };
+        }
+
+        /**
+         * Every attempt takes {@code latencyMillis}; the dependency is repeatedly up for {@code upMillis} and then down
+         * (failing every attempt) for {@code downMillis}.
+         */
+        static Model outages(long upMillis, long downMillis, long latencyMillis) {
+            if(upMillis <= 0) {
+                throw new IllegalArgumentException("upMillis");
+            }
+            if(downMillis < 0) {
+                throw new IllegalArgumentException("downMillis");
+            }
+            validateLatency(latencyMillis);
+            final long cycleNanos = TimeUnit.MILLISECONDS.toNanos(upMillis + downMillis);
+            final long upNanos = TimeUnit.MILLISECONDS.toNanos(upMillis);
+            return (time, random) -> {
+                final boolean up = time.nanoTime() % cycleNanos < upNanos;
+                time.advance(latencyMillis, TimeUnit.MILLISECONDS);
+                return up;
+            };
+        }
+    }
+
+    private RetrySimulation() {
+    }
+
+    /**
+     * Makes {@code calls} calls, one after the other, through a policy built by a new builder from {@code policy}. It's
+     * given the simulation's random source, which jittered backoffs should draw from (e.g.
+     * {@code random -> RetryPolicy.builder(3).backoff(BackoffPolicy.fullJitter(10, 2, 1000, random))}) for the run to
+     * be reproducible. The builder's time source and listener are replaced by the simulation's own.
+     */
+    public static Result simulate(Function<DoubleSupplier, RetryPolicy.Builder> policy, Model model, int calls, long seed) {
+        Objects.requireNonNull(policy);
+        Objects.requireNonNull(model);
+        if(calls <= 0) {
+            throw new IllegalArgumentException("calls");
+        }
+        final VirtualTime time = new VirtualTime();
+        final RetryMetrics metrics = new RetryMetrics();
+        final SplittableRandom random = new SplittableRandom(seed);
+        final SplittableRandom jitter = random.split();
+        final Supplier<Either<Exception, Boolean>> call = Objects.requireNonNull(policy.apply(jitter::nextDouble))
+                .timeSource(time)
+                .listener(metrics)
+                .build()
+                .withRetriesSupply(() -> model.attempt(time, random), ok -> ok, e -> e);
+        for(int i = 0; i < calls; i++) {
+            call.get();
+        }
+        return new Result(metrics, time.nanoTime());
+    }
+
+    private static void validateProbability(double probability) {
+        if(probability < 0 || probability > 1) {
+            throw new IllegalArgumentException("failureProbability");
+        }
+    }
+
+    private static void validateLatency(long latencyMillis) {
+        if(latencyMillis < 0) {
+            throw new IllegalArgumentException("latencyMillis");
+        }
+    }
+
+    public static final class Result {
+        private final RetryMetrics metrics;
+        private final long elapsedNanos;
+
+        private Result(RetryMetrics metrics, long elapsedNanos) {
+            this.metrics = metrics;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return the counters and (virtual time) latencies of the run
+         */
+        public RetryMetrics metrics() {
+            return metrics;
+        }
+
+        public long elapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        public double successRate() {
+            return (double) metrics.successes() / metrics.calls();
+        }
+
+        /**
+         * @return the load on the dependency, relative to making each call once
+         */
+        public double attemptsPerCall() {
+            return (double) metrics.attempts() / metrics.calls();
+        }
+
+        /**
+         * @return successful calls per second of virtual time
+         */
+        public double throughput() {
+            return elapsedNanos == 0 ? 0 : metrics.successes() * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "calls=%d, successRate=%.4f, attemptsPerCall=%.3f, throughput=%.1f/s, p50=%dus, p99=%dus",
+                    metrics.calls(),
+                    successRate(),
+                    attemptsPerCall(),
+                    throughput(),
+                    metrics.callLatencyMicros(0.5),
+                    metrics.callLatencyMicros(0.99));
+        }
+    }
+}
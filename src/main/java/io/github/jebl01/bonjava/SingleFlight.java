@@ -0,0 +1,89 @@
+package io.github.jebl01.bonjava;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls: while a call for a key is in flight, callers with an equal key wait for it and share its
+ * result (or exception) instead of making a call of their own. Nothing is cached, a key is forgotten as soon as its
+ * call has completed. Wrap a retrying function to share the whole retry loop.
+ * <p>
+ * A function must not call itself (through the wrapper) with the same key, since it would then wait for itself.
+ */
+public class SingleFlight {
+    private static final Object SUPPLY_KEY = new Object();
+
+    public static <T, R> Function<T, R> withSingleFlight(final Function<T, R> f) {
+        Objects.requireNonNull(f);
+        final ConcurrentMap<T, CompletableFuture<R>> inFlight = new ConcurrentHashMap<>();
+        return t -> call(inFlight, f, t);
+    }
+
+    public static <T, L, R> Function<T, Either<L, R>> withSingleFlight(final Function<T, R> f,
+                                                                       final Function<Exception, L> errorMapper) {
+        Objects.requireNonNull(errorMapper);
+        final Function<T, R> coalesced = withSingleFlight(f);
+        return t -> {
+            try {
+                return Either.right(coalesced.apply(t));
+            }
+            catch(Exception e) {
+                return Either.left(errorMapper.apply(e));
+            }
+        };
+    }
+
+    public static <T> Supplier<T> withSingleFlightSupply(final Supplier<T> f) {
+        Objects.requireNonNull(f);
+        final Function<Object, T> coalesced = withSingleFlight(ignored -> f.get());
+        return () -> coalesced.apply(SUPPLY_KEY);
+    }
+
+    public static <L, R> Supplier<Either<L, R>> withSingleFlightSupply(final Supplier<R> f,
+                                                                       final Function<Exception, L> errorMapper) {
+        Objects.requireNonNull(f);
+        final Function<Object, Either<L, R>> coalesced = withSingleFlight(ignored -> f.get(), errorMapper);
+        return () -> coalesced.apply(SUPPLY_KEY);
+    }
+
+    private static <T, R> R call(ConcurrentMap<T, CompletableFuture<R>> inFlight, Function<T, R> f, T t) {
+        if(t == null) {
+            return f.apply(null);
+        }
+        final CompletableFuture<R> call = new CompletableFuture<>();
+        final CompletableFuture<R> leader = inFlight.putIfAbsent(t, call);
+        if(leader != null) {
+            return await(leader);
+        }
+        final R result;
+        try {
+            result = f.apply(t);
+        }
+        catch(Throwable e) {
+            inFlight.remove(t, call);
+            call.completeExceptionally(e);
+            throw e;
+        }
+        inFlight.remove(t, call);
+        call.complete(result);
+        return result;
+    }
+
+    private static <R> R await(CompletableFuture<R> leader) {
+        try {
+            return leader.get();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw SneakyThrow.<RuntimeException>sneakyException(e);
+        }
+        catch(ExecutionException e) {
+            throw SneakyThrow.<RuntimeException>sneakyException(e.getCause());
+        }
+    }
+}
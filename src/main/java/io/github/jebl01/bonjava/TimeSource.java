@@ -0,0 +1,32 @@
+package io.github.jebl01.bonjava;
+
+/**
+ * The clock and sleeper used by a {@link RetryPolicy}, for deadlines, backoffs and listener durations. Replace it with
+ * a {@link VirtualTime} to run retries without actually waiting.
+ */
+public interface TimeSource {
+    long nanoTime();
+
+    void sleep(long millis) throws InterruptedException;
+
+    static TimeSource system() {
+        return SystemTimeSource.INSTANCE;
+    }
+}
+
+final class SystemTimeSource implements TimeSource {
+    static final TimeSource INSTANCE = new SystemTimeSource();
+
+    private SystemTimeSource() {
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+}
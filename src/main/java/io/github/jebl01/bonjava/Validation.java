@@ -0,0 +1,432 @@
+package io.github.jebl01.bonjava;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Like an {@link Either}, but combining validations keeps the errors of all of them instead of stopping at the first
+ * one. Errors are kept in {@link Errors}, which are concatenated in constant time, so combining any number of
+ * validations takes linear time.
+ */
+public abstract class Validation<E, A> {
+
+    public static <E, A> Validation<E, A> valid(A value) {
+        return new Valid<>(value);
+    }
+
+    public static <E, A> Validation<E, A> invalid(E error) {
+        return new Invalid<>(Errors.of(error));
+    }
+
+    /**
+     * @throws IllegalArgumentException if there are no errors
+     */
+    public static <E, A> Validation<E, A> invalid(Errors<E> errors) {
+        if(errors.isEmpty()) {
+            throw new IllegalArgumentException("errors");
+        }
+        return new Invalid<>(errors);
+    }
+
+    public static <E, A> Validation<E, A> fromEither(Either<E, A> either) {
+        Objects.requireNonNull(either);
+        return either.isRight() ? valid(either.rightValue()) : invalid(either.leftValue());
+    }
+
+    /**
+     * The inverse of {@link #toEither()}.
+     *
+     * @throws IllegalArgumentException if the either is a left without errors
+     */
+    public static <E, A> Validation<E, A> fromEitherOfAll(Either<? extends Iterable<E>, A> either) {
+        Objects.requireNonNull(either);
+        return either.isRight() ? valid(either.rightValue()) : invalid(Errors.ofAll(either.leftValue()));
+    }
+
+    /**
+     * @return all values, or the errors of all invalid validations
+     */
+    public static <E, A> Validation<E, List<A>> sequence(Iterable<Validation<E, A>> validations) {
+        Objects.requireNonNull(validations);
+        Errors<E> errors = Errors.empty();
+        final List<A> values = validations instanceof Collection
+                ? new ArrayList<>(((Collection<Validation<E, A>>) validations).size())
+                : new ArrayList<>();
+        for(Validation<E, A> validation : validations) {
+            if(validation.isValid()) {
+                if(errors.isEmpty()) {
+                    values.add(validation.value());
+                }
+            }
+            else {
+                errors = errors.concat(validation.errors());
+            }
+        }
+        return errors.isEmpty() ? valid(values) : invalid(errors);
+    }
+
+    public static <E, A1, A2> Validation<E, Tuple.Tuple2<A1, A2>> combine(Validation<E, A1> v1,
+                                                                         Validation<E, A2> v2) {
+        final Errors<E> errors = errors(v1, v2);
+        return errors.isEmpty() ? valid(Tuple.of(v1.value(), v2.value())) : invalid(errors);
+    }
+
+    public static <E, A1, A2, A3> Validation<E, Tuple.Tuple3<A1, A2, A3>> combine(Validation<E, A1> v1,
+                                                                                 Validation<E, A2> v2,
+                                                                                 Validation<E, A3> v3) {
+        final Errors<E> errors = errors(v1, v2, v3);
+        return errors.isEmpty() ? valid(Tuple.of(v1.value(), v2.value(), v3.value())) : invalid(errors);
+    }
+
+    public static <E, A1, A2, A3, A4> Validation<E, Tuple.Tuple4<A1, A2, A3, A4>> combine(Validation<E, A1> v1,
+                                                                                         Validation<E, A2> v2,
+                                                                                         Validation<E, A3> v3,
+                                                                                         Validation<E, A4> v4) {
+        final Errors<E> errors = errors(v1, v2, v3, v4);
+        return errors.isEmpty()
+                ? valid(Tuple.of(v1.value(), v2.value(), v3.value(), v4.value()))
+                : invalid(errors);
+    }
+
+    public static <E, A1, A2, A3, A4, A5> Validation<E, Tuple.Tuple5<A1, A2, A3, A4, A5>> combine(Validation<E, A1> v1,
+                                                                                                 Validation<E, A2> v2,
+                                                                                                 Validation<E, A3> v3,
+                                                                                                 Validation<E, A4> v4,
+                                                                                                 Validation<E, A5> v5) {
+        final Errors<E> errors = errors(v1, v2, v3, v4, v5);
+        return errors.isEmpty()
+                ? valid(Tuple.of(v1.value(), v2.value(), v3.value(), v4.value(), v5.value()))
+                : invalid(errors);
+    }
+
+    public static <E, A1, A2, A3, A4, A5, A6> Validation<E, Tuple.Tuple6<A1, A2, A3, A4, A5, A6>> combine(
+            Validation<E, A1> v1,
+            Validation<E, A2> v2,
+            Validation<E, A3> v3,
+            Validation<E, A4> v4,
+            Validation<E, A5> v5,
+            Validation<E, A6> v6) {
+        final Errors<E> errors = errors(v1, v2, v3, v4, v5, v6);
+        return errors.isEmpty()
+                ? valid(Tuple.of(v1.value(), v2.value(), v3.value(), v4.value(), v5.value(), v6.value()))
+                : invalid(errors);
+    }
+
+    public static <E, A1, A2, A3, A4, A5, A6, A7> Validation<E, Tuple.Tuple7<A1, A2, A3, A4, A5, A6, A7>> combine(
+            Validation<E, A1> v1,
+            Validation<E, A2> v2,
+            Validation<E, A3> v3,
+            Validation<E, A4> v4,
+            Validation<E, A5> v5,
+            Validation<E, A6> v6,
+            Validation<E, A7> v7) {
+        final Errors<E> errors = errors(v1, v2, v3, v4, v5, v6, v7);
+        return errors.isEmpty()
+                ? valid(Tuple.of(v1.value(), v2.value(), v3.value(), v4.value(), v5.value(), v6.value(), v7.value()))
+                : invalid(errors);
+    }
+
+    public static <E, A1, A2, A3, A4, A5, A6, A7, A8> Validation<E, Tuple.Tuple8<A1, A2, A3, A4, A5, A6, A7, A8>> combine(
+            Validation<E, A1> v1,
+            Validation<E, A2> v2,
+            Validation<E, A3> v3,
+            Validation<E, A4> v4,
+            Validation<E, A5> v5,
+            Validation<E, A6> v6,
+            Validation<E, A7> v7,
+            Validation<E, A8> v8) {
+        final Errors<E> errors = errors(v1, v2, v3, v4, v5, v6, v7, v8);
+        return errors.isEmpty()
+                ? valid(Tuple.of(
+                        v1.value(), v2.value(), v3.value(), v4.value(), v5.value(), v6.value(), v7.value(), v8.value()))
+                : invalid(errors);
+    }
+
+    public static <E, A1, A2, A3, A4, A5, A6, A7, A8, A9> Validation<E, Tuple.Tuple9<A1, A2, A3, A4, A5, A6, A7, A8, A9>> combine(
+            Validation<E, A1> v1,
+            Validation<E, A2> v2,
+            Validation<E, A3> v3,
+            Validation<E, A4> v4,
+            Validation<E, A5> v5,
+            Validation<E, A6> v6,
+            Validation<E, A7> v7,
+            Validation<E, A8> v8,
+            Validation<E, A9> v9) {
+        final Errors<E> errors = errors(v1, v2, v3, v4, v5, v6, v7, v8, v9);
+        return errors.isEmpty()
+                ? valid(Tuple.of(
+                        v1.value(), v2.value(), v3.value(), v4.value(), v5.value(), v6.value(), v7.value(), v8.value(),
+                        v9.value()))
+                : invalid(errors);
+    }
+
+    public static <E, A1, A2, A3, A4, A5, A6, A7, A8, A9, A10> Validation<E, Tuple.Tuple10<A1, A2, A3, A4, A5, A6, A7, A8, A9, A10>> combine(
+            Validation<E, A1> v1,
+            Validation<E, A2> v2,
+            Validation<E, A3> v3,
+            Validation<E, A4> v4,
+            Validation<E, A5> v5,
+            Validation<E, A6> v6,
+            Validation<E, A7> v7,
+            Validation<E, A8> v8,
+            Validation<E, A9> v9,
+            Validation<E, A10> v10) {
+        final Errors<E> errors = errors(v1, v2, v3, v4, v5, v6, v7, v8, v9, v10);
+        return errors.isEmpty()
+                ? valid(Tuple.of(
+                        v1.value(), v2.value(), v3.value(), v4.value(), v5.value(), v6.value(), v7.value(), v8.value(),
+                        v9.value(), v10.value()))
+                : invalid(errors);
+    }
+
+    @SafeVarargs
+    private static <E> Errors<E> errors(Validation<E, ?>... validations) {
+        Errors<E> errors = Errors.empty();
+        for(Validation<E, ?> validation : validations) {
+            errors = errors.concat(validation.errors());
+        }
+        return errors;
+    }
+
+    public boolean isValid() {
+        return false;
+    }
+
+    public boolean isInvalid() {
+        return false;
+    }
+
+    /**
+     * @throws NoSuchElementException if this is invalid
+     */
+    public A value() {
+        throw new NoSuchElementException("not valid");
+    }
+
+    /**
+     * @return the errors, none if this is valid
+     */
+    public Errors<E> errors() {
+        return Errors.empty();
+    }
+
+    public abstract <B> Validation<E, B> map(Function<? super A, B> f);
+
+    public abstract <F> Validation<F, A> mapErrors(Function<? super E, F> f);
+
+    /**
+     * For validations depending on this one; like {@link Either#flatMap(Function)}, {@code f} is only applied if this
+     * is valid.
+     */
+    public abstract <B> Validation<E, B> flatMap(Function<? super A, Validation<E, B>> f);
+
+    public abstract <T> T fold(Function<? super Errors<E>, ? extends T> emap, Function<? super A, ? extends T> vmap);
+
+    /**
+     * @return the value as a right, or all errors, in order, as a left
+     */
+    public abstract Either<List<E>, A> toEither();
+
+    public static class Valid<E, A> extends Validation<E, A> {
+        private final A value;
+
+        private Valid(A value) {
+            Objects.requireNonNull(value);
+            this.value = value;
+        }
+
+        @Override
+        public boolean isValid() {
+            return true;
+        }
+
+        @Override
+        public A value() {
+            return value;
+        }
+
+        @Override
+        public <B> Validation<E, B> map(Function<? super A, B> f) {
+            Objects.requireNonNull(f);
+            return valid(f.apply(value));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <F> Validation<F, A> mapErrors(Function<? super E, F> f) {
+            //a valid holds no errors, so it can be passed on as is
+            return (Validation<F, A>) this;
+        }
+
+        @Override
+        public <B> Validation<E, B> flatMap(Function<? super A, Validation<E, B>> f) {
+            Objects.requireNonNull(f);
+            return f.apply(value);
+        }
+
+        @Override
+        public <T> T fold(Function<? super Errors<E>, ? extends T> emap, Function<? super A, ? extends T> vmap) {
+            return Objects.requireNonNull(vmap, "vmap cannot be null").apply(value);
+        }
+
+        @Override
+        public Either<List<E>, A> toEither() {
+            return Either.right(value);
+        }
+    }
+
+    public static class Invalid<E, A> extends Validation<E, A> {
+        private final Errors<E> errors;
+
+        private Invalid(Errors<E> errors) {
+            this.errors = errors;
+        }
+
+        @Override
+        public boolean isInvalid() {
+            return true;
+        }
+
+        @Override
+        public Errors<E> errors() {
+            return errors;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <B> Validation<E, B> map(Function<? super A, B> f) {
+            //an invalid holds no value, so it can be passed on as is
+            return (Validation<E, B>) this;
+        }
+
+        @Override
+        public <F> Validation<F, A> mapErrors(Function<? super E, F> f) {
+            Objects.requireNonNull(f);
+            Errors<F> mapped = Errors.empty();
+            for(E error : errors) {
+                mapped = mapped.append(f.apply(error));
+            }
+            return invalid(mapped);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <B> Validation<E, B> flatMap(Function<? super A, Validation<E, B>> f) {
+            return (Validation<E, B>) this;
+        }
+
+        @Override
+        public <T> T fold(Function<? super Errors<E>, ? extends T> emap, Function<? super A, ? extends T> vmap) {
+            return Objects.requireNonNull(emap, "emap cannot be null").apply(errors);
+        }
+
+        @Override
+        public Either<List<E>, A> toEither() {
+            return Either.left(errors.toList());
+        }
+    }
+
+    /**
+     * An immutable sequence of errors, concatenated in constant time by linking the two sequences rather than copying
+     * them. Iterating takes linear time, however the errors were concatenated.
+     */
+    public static final class Errors<E> implements Iterable<E> {
+        private static final Errors<?> EMPTY = new Errors<>(null, null, null, 0);
+
+        //a single error, or the concatenation of first and second
+        private final E error;
+        private final Errors<E> first;
+        private final Errors<E> second;
+        private final int size;
+
+        private Errors(E error, Errors<E> first, Errors<E> second, int size) {
+            this.error = error;
+            this.first = first;
+            this.second = second;
+            this.size = size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public static <E> Errors<E> empty() {
+            return (Errors<E>) EMPTY;
+        }
+
+        public static <E> Errors<E> of(E error) {
+            Objects.requireNonNull(error);
+            return new Errors<>(error, null, null, 1);
+        }
+
+        public static <E> Errors<E> ofAll(Iterable<E> errors) {
+            Objects.requireNonNull(errors);
+            Errors<E> all = empty();
+            for(E error : errors) {
+                all = all.append(error);
+            }
+            return all;
+        }
+
+        public Errors<E> append(E error) {
+            return concat(of(error));
+        }
+
+        public Errors<E> concat(Errors<E> other) {
+            Objects.requireNonNull(other);
+            if(other.size == 0) {
+                return this;
+            }
+            if(size == 0) {
+                return other;
+            }
+            return new Errors<>(null, this, other, size + other.size);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * @return the errors, in order, in a new list
+         */
+        public List<E> toList() {
+            final List<E> list = new ArrayList<>(size);
+            if(size == 0) {
+                return list;
+            }
+            //walks the tree with an explicit stack, as long chains of concatenations would overflow the call stack
+            final Deque<Errors<E>> pending = new ArrayDeque<>();
+            pending.push(this);
+            while(!pending.isEmpty()) {
+                final Errors<E> next = pending.pop();
+                if(next.first == null) {
+                    list.add(next.error);
+                }
+                else {
+                    pending.push(next.second);
+                    pending.push(next.first);
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return toList().iterator();
+        }
+
+        @Override
+        public String toString() {
+            return toList().toString();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.jebl01.bonjava;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link TimeSource} where time only passes when told to: sleeping advances the time instead of waiting.
+ */
+public final class VirtualTime implements TimeSource {
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Override
+    public long nanoTime() {
+        return nanos.get();
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        advance(millis, TimeUnit.MILLISECONDS);
+    }
+
+    public void advance(long duration, TimeUnit unit) {
+        Objects.requireNonNull(unit);
+        if(duration < 0) {
+            throw new IllegalArgumentException("duration");
+        }
+        nanos.addAndGet(unit.toNanos(duration));
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualTime[" + TimeUnit.NANOSECONDS.toMillis(nanos.get()) + " ms]";
+    }
+}
@@ -157,11 +157,11 @@ public class MatchingConsumer {
         public boolean matches(T t) {
             return MatchingFunction.match_(
                     MatchingFunction._case(Either.Left.class, l -> either.getLeft()
-                            .filter(c -> c.isAssignableFrom(l.getLeft().get().getClass()))
-                            .filter(c -> predicate.test((X) l.getLeft().get())).isPresent()),
+                            .filter(c -> c.isAssignableFrom(l.leftValue().getClass()))
+                            .filter(c -> predicate.test((X) l.leftValue())).isPresent()),
                     MatchingFunction._case(Either.Right.class, r -> either.getRight()
-                            .filter(c -> c.isAssignableFrom(r.getRight().get().getClass()))
-                            .filter(c -> predicate.test((X) r.getRight().get())).isPresent()),
+                            .filter(c -> c.isAssignableFrom(r.rightValue().getClass()))
+                            .filter(c -> predicate.test((X) r.rightValue())).isPresent()),
                     MatchingFunction._default(s -> false)
             ).apply(t);
         }
@@ -175,8 +175,8 @@ public class MatchingConsumer {
         @SuppressWarnings("unchecked")
         public void accept(T t) {
             match_(
-                    _case(Either.Left.class, l -> consumer.accept((X) l.getLeft().get())),
-                    _case(Either.Right.class, r -> consumer.accept((X) r.getRight().get()))
+                    _case(Either.Left.class, l -> consumer.accept((X) l.leftValue())),
+                    _case(Either.Right.class, r -> consumer.accept((X) r.rightValue()))
             ).accept(t);
         }
     }
@@ -8,9 +8,18 @@ import java.util.function.Function;
 import java.util.function.Predicate;
 
 public class MatchingFunction {
+    private static final NoMatch<MatchingException> NO_MATCH = new NoMatch<>(NoMatch.STACKLESS, MatchingException::new);
+
     @SafeVarargs
     public static <T, R> CasesFunction<T, R> match_(CaseFunction<T, R, ?>... cases) {
-        return new CasesFunction<>(Arrays.asList(cases));
+        return new CasesFunction<>(Arrays.asList(cases), NO_MATCH);
+    }
+
+    /**
+     * Like {@link #match_}, creating stackless exceptions or not regardless of the system property.
+     */
+    static <T, R> CasesFunction<T, R> match_(boolean stacklessExceptions, List<CaseFunction<T, R, ?>> cases) {
+        return new CasesFunction<>(cases, new NoMatch<>(stacklessExceptions, MatchingException::new));
     }
 
     public static <T, R, X> CaseFunction<T, R, X> _case(final Either<Class<X>, Class<X>> either, Function<X, R> f) {
@@ -49,9 +58,11 @@ public class MatchingFunction {
 
     static class CasesFunction<T, R> implements Function<T, R> {
         private List<CaseFunction<T, R, ?>> cases;
+        private final NoMatch<MatchingException> noMatch;
 
-        private CasesFunction(List<CaseFunction<T, R, ?>> cases) {
+        private CasesFunction(List<CaseFunction<T, R, ?>> cases, NoMatch<MatchingException> noMatch) {
             this.cases = cases;
+            this.noMatch = noMatch;
         }
 
         @Override
@@ -61,10 +72,7 @@ public class MatchingFunction {
                     return _case.apply(t);
                 }
             }
-            if(Throwable.class.isAssignableFrom(t.getClass())) {
-                throw new MatchingException("failed to find matching applicator", (Throwable) t);
-            }
-            throw new MatchingException("failed to find matching applicator");
+            throw noMatch.exception(t);
         }
     }
 
@@ -111,11 +119,11 @@ public class MatchingFunction {
         public boolean matches(T t) {
             return match_(
                     _case(Either.Left.class, l -> either.getLeft()
-                            .filter(c -> c.isAssignableFrom(l.getLeft().get().getClass()))
-                            .filter(c -> predicate.test((X) l.getLeft().get())).isPresent()),
+                            .filter(c -> c.isAssignableFrom(l.leftValue().getClass()))
+                            .filter(c -> predicate.test((X) l.leftValue())).isPresent()),
                     _case(Either.Right.class, r -> either.getRight()
-                            .filter(c -> c.isAssignableFrom(r.getRight().get().getClass()))
-                            .filter(c -> predicate.test((X) r.getRight().get())).isPresent()),
+                            .filter(c -> c.isAssignableFrom(r.rightValue().getClass()))
+                            .filter(c -> predicate.test((X) r.rightValue())).isPresent()),
                     _default(s -> false)
             ).apply(t);
         }
@@ -123,8 +131,8 @@ public class MatchingFunction {
         @Override
         public R apply(T t) {
             return match_(
-                    _case(Either.Left.class, l -> f.apply((X) l.getLeft().get())),
-                    _case(Either.Right.class, r -> f.apply((X) r.getRight().get()))
+                    _case(Either.Left.class, l -> f.apply((X) l.leftValue())),
+                    _case(Either.Right.class, r -> f.apply((X) r.rightValue()))
             ).apply(t);
         }
     }
@@ -137,5 +145,9 @@ public class MatchingFunction {
         public MatchingException(String reason, Throwable cause) {
             super(reason, cause);
         }
+
+        public MatchingException(String reason, Throwable cause, boolean writableStackTrace) {
+            super(reason, cause, writableStackTrace, writableStackTrace);
+        }
     }
 }
@@ -7,9 +7,18 @@ import java.util.function.Predicate;
 import io.github.jebl01.bonjava.Either;
 
 public class MatchingPredicate {
+    private static final NoMatch<MatchingException> NO_MATCH = new NoMatch<>(NoMatch.STACKLESS, MatchingException::new);
+
     @SafeVarargs
     public static <T> CasesPredicate<T> match_(CasePredicate<T, ?>... cases) {
-        return new CasesPredicate<>(Arrays.asList(cases));
+        return new CasesPredicate<>(Arrays.asList(cases), NO_MATCH);
+    }
+
+    /**
+     * Like {@link #match_}, creating stackless exceptions or not regardless of the system property.
+     */
+    static <T> CasesPredicate<T> match_(boolean stacklessExceptions, List<CasePredicate<T, ?>> cases) {
+        return new CasesPredicate<>(cases, new NoMatch<>(stacklessExceptions, MatchingException::new));
     }
 
     public static <T, X> CasePredicate<T, X> _case(final Either<Class<X>, Class<X>> either, Predicate<X> f) {
@@ -48,9 +57,11 @@ public class MatchingPredicate {
 
     static class CasesPredicate<T> implements Predicate<T> {
         private List<CasePredicate<T, ?>> cases;
+        private final NoMatch<MatchingException> noMatch;
 
-        private CasesPredicate(List<CasePredicate<T, ?>> cases) {
+        private CasesPredicate(List<CasePredicate<T, ?>> cases, NoMatch<MatchingException> noMatch) {
             this.cases = cases;
+            this.noMatch = noMatch;
         }
 
         @Override
@@ -60,10 +71,7 @@ public class MatchingPredicate {
                     return _case.test(t);
                 }
             }
-            if(Throwable.class.isAssignableFrom(t.getClass())) {
-                throw new MatchingException("failed to find matching applicator", (Throwable) t);
-            }
-            throw new MatchingException("failed to find matching applicator");
+            throw noMatch.exception(t);
         }
     }
 
@@ -110,11 +118,11 @@ public class MatchingPredicate {
         public boolean matches(T t) {
             return MatchingFunction.match_(
                     MatchingFunction._case(Either.Left.class, l -> either.getLeft()
-                            .filter(c -> c.isAssignableFrom(l.getLeft().get().getClass()))
-                            .filter(c -> predicate.test((X) l.getLeft().get())).isPresent()),
+                            .filter(c -> c.isAssignableFrom(l.leftValue().getClass()))
+                            .filter(c -> predicate.test((X) l.leftValue())).isPresent()),
                     MatchingFunction._case(Either.Right.class, r -> either.getRight()
-                            .filter(c -> c.isAssignableFrom(r.getRight().get().getClass()))
-                            .filter(c -> predicate.test((X) r.getRight().get())).isPresent()),
+                            .filter(c -> c.isAssignableFrom(r.rightValue().getClass()))
+                            .filter(c -> predicate.test((X) r.rightValue())).isPresent()),
                     MatchingFunction._default(s -> false)
             ).apply(t);
         }
@@ -122,8 +130,8 @@ public class MatchingPredicate {
         @Override
         public boolean test(final T t) {
             return match_(
-                    _case(Either.Left.class, l -> f.test((X) l.getLeft().get())),
-                    _case(Either.Right.class, r -> f.test((X) r.getRight().get()))
+                    _case(Either.Left.class, l -> f.test((X) l.leftValue())),
+                    _case(Either.Right.class, r -> f.test((X) r.rightValue()))
             ).test(t);
         }
     }
@@ -136,5 +144,9 @@ public class MatchingPredicate {
         public MatchingException(String reason, Throwable cause) {
             super(reason, cause);
         }
+
+        public MatchingException(String reason, Throwable cause, boolean writableStackTrace) {
+            super(reason, cause, writableStackTrace, writableStackTrace);
+        }
     }
 }
@@ -0,0 +1,39 @@
+package io.github.jebl01.bonjava.matching;
+
+/**
+ * Creates the exceptions thrown when no case matches a value. When a failed match is ordinary control flow, stackless
+ * exceptions avoid the cost of filling in stack traces: they are created without a writable stack trace and with
+ * suppression disabled, so that the one thrown when there is no cause can be a single shared instance.
+ */
+final class NoMatch<E extends RuntimeException> {
+    private static final String REASON = "failed to find matching applicator";
+
+    /**
+     * The default, from the system property {@code bonjava.stacklessExceptions}.
+     */
+    static final boolean STACKLESS = Boolean.getBoolean("bonjava.stacklessExceptions");
+
+    interface Factory<E> {
+        E create(String reason, Throwable cause, boolean writableStackTrace);
+    }
+
+    private final boolean stackless;
+    private final Factory<E> factory;
+    private final E shared;
+
+    NoMatch(boolean stackless, Factory<E> factory) {
+        this.stackless = stackless;
+        this.factory = factory;
+        this.shared = stackless ? factory.create(REASON, null, false) : null;
+    }
+
+    /**
+     * @return the exception for the unmatched value, caused by the value if it's an exception
+     */
+    E exception(Object value) {
+        if(value instanceof Throwable) {
+            return factory.create(REASON, (Throwable) value, !stackless);
+        }
+        return stackless ? shared : factory.create(REASON, null, true);
+    }
+}
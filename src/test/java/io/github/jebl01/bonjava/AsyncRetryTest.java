@@ -0,0 +1,209 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class AsyncRetryTest {
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testHappyCase() throws Exception {
+        String result = AsyncRetry.withRetries(
+                (String d) -> CompletableFuture.completedFuture(d.toUpperCase()),
+                d -> d.equals("TEST"),
+                3,
+                10,
+                2,
+                scheduler).apply("test").get();
+        assertEquals("TEST", result);
+    }
+
+    @Test
+    public void testRetrySome() throws Exception {
+        final List<String> convertedData = Arrays.asList("TE", "TES", "TEST");
+        final AtomicInteger retryNo = new AtomicInteger(0);
+        String result = AsyncRetry.withRetriesSupply(
+                () -> CompletableFuture.supplyAsync(() -> convertedData.get(retryNo.getAndIncrement())),
+                d -> d.equals("TEST"),
+                3,
+                10,
+                2,
+                scheduler).get().get();
+        assertEquals("TEST", result);
+        assertEquals(3, retryNo.get());
+    }
+
+    @Test
+    public void testFailRetry() throws Exception {
+        final AtomicInteger retryNo = new AtomicInteger(0);
+        try {
+            AsyncRetry.withRetries(
+                    (String d) -> CompletableFuture.completedFuture(d + retryNo.incrementAndGet()),
+                    d -> false,
+                    2,
+                    10,
+                    2,
+                    scheduler).apply("test").get();
+            fail();
+        }
+        catch(ExecutionException e) {
+            assertTrue(e.getCause() instanceof Retry.RetryException);
+            assertEquals("retried 2 times but failed", e.getCause().getMessage());
+            assertNull(e.getCause().getCause());
+            assertEquals(2, retryNo.get());
+        }
+    }
+
+    @Test
+    public void testFailRetryWithCause() throws Exception {
+        final CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new RuntimeException("things failed"));
+        Either<String, String> result = AsyncRetry.withRetries(
+                (String d) -> failed,
+                d -> true,
+                e -> "error: " + e.getMessage() + ": " + e.getCause().getMessage(),
+                2,
+                10,
+                2,
+                scheduler).apply("test").get();
+        assertEquals("error: retried 2 times but failed with exception: things failed", result.getLeft().get());
+    }
+
+    @Test
+    public void testSynchronousExceptionIsRetried() throws Exception {
+        final AtomicInteger retryNo = new AtomicInteger(0);
+        Either<String, String> result = AsyncRetry.withRetriesSupply(
+                () -> {
+                    if(retryNo.incrementAndGet() < 2) {
+                        throw new IllegalStateException("not yet");
+                    }
+                    return CompletableFuture.completedFuture("TEST");
+                },
+                d -> true,
+                e -> "error: " + e.getMessage(),
+                3,
+                10,
+                2,
+                scheduler).get().get();
+        assertEquals("TEST", result.getRight().get());
+    }
+
+    @Test
+    public void testEitherRetrySome() throws Exception {
+        final List<Either<String, String>> convertedData = Arrays.asList(Either.left("TE"), Either.right("TES"),
+                Either.right("TEST"));
+        final AtomicInteger retryNo = new AtomicInteger(0);
+        Either<String, String> result = AsyncRetry.eitherWithRetries(
+                (String d) -> CompletableFuture.completedFuture(convertedData.get(retryNo.getAndIncrement())),
+                d -> d.equals("TEST"),
+                e -> "error: " + e.getMessage(),
+                3,
+                10,
+                2,
+                scheduler).apply("test").get();
+        assertEquals("TEST", result.getRight().get());
+    }
+
+    @Test
+    public void testAcceptedRightIsPassedOnAsIs() throws Exception {
+        final Either<Integer, String> right = Either.right("TEST");
+        final Either<String, String> result = AsyncRetry.eitherWithRetries(
+                (String d) -> CompletableFuture.completedFuture(right),
+                d -> d.equals("TEST"),
+                e -> "error: " + e.getMessage(),
+                3,
+                10,
+                2,
+                scheduler).apply("test").get();
+        assertSame(right, result);
+    }
+
+    @Test
+    public void testDoesNotBlockCallerDuringBackoff() throws Exception {
+        final AtomicInteger retryNo = new AtomicInteger(0);
+        final long start = System.nanoTime();
+        CompletableFuture<Either<String, Integer>> result = AsyncRetry.eitherWithRetriesSupply(
+                () -> CompletableFuture.completedFuture(Either.<String, Integer>right(retryNo.incrementAndGet())),
+                d -> d == 2,
+                e -> "error: " + e.getMessage(),
+                2,
+                500,
+                2,
+                scheduler).get();
+        assertTrue(System.nanoTime() - start < 400_000_000L);
+        assertNotNull(result);
+        assertEquals(2, result.get().getRight().get().intValue());
+    }
+
+    @Test
+    public void testAttemptTimeoutAbandonsSlowAttempt() throws Exception {
+        final CompletableFuture<String> never = new CompletableFuture<>();
+        final AtomicInteger retryNo = new AtomicInteger(0);
+        Either<String, String> result = AsyncRetry.withRetriesSupply(
+                () -> retryNo.incrementAndGet() == 1 ? never : CompletableFuture.completedFuture("TEST"),
+                d -> true,
+                e -> "error: " + e.getMessage(),
+                RetryPolicy.builder(2)
+                        .attemptTimeout(50, TimeUnit.MILLISECONDS)
+                        .build(),
+                scheduler).get().get();
+        assertEquals("TEST", result.getRight().get());
+        assertTrue(never.isCancelled());
+    }
+
+    @Test
+    public void testMaxDurationStopsRetrying() throws Exception {
+        final AtomicInteger retryNo = new AtomicInteger(0);
+        Either<String, String> result = AsyncRetry.withRetriesSupply(
+                () -> CompletableFuture.completedFuture("TE" + retryNo.incrementAndGet()),
+                d -> d.equals("TEST"),
+                e -> "error: " + e.getMessage(),
+                RetryPolicy.builder(10)
+                        .backoff(BackoffPolicy.constant(100))
+                        .maxDuration(250, TimeUnit.MILLISECONDS)
+                        .build(),
+                scheduler).get().get();
+        assertEquals("error: deadline exceeded after 3 attempts", result.getLeft().get());
+    }
+
+    @Test
+    public void testAbortsOnNonRetryableException() throws Exception {
+        final AtomicInteger retryNo = new AtomicInteger(0);
+        final CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalArgumentException());
+        Either<String, String> result = AsyncRetry.withRetriesSupply(
+                () -> {
+                    retryNo.incrementAndGet();
+                    return failed;
+                },
+                d -> true,
+                e -> "error: " + e.getMessage(),
+                RetryPolicy.builder(5)
+                        .abortOn(IllegalArgumentException.class)
+                        .build(),
+                scheduler).get().get();
+        assertEquals("error: aborted after 1 attempts on non retryable exception", result.getLeft().get());
+        assertEquals(1, retryNo.get());
+    }
+}
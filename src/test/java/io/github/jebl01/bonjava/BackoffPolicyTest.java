@@ -0,0 +1,100 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+public class BackoffPolicyTest {
+
+    @Test
+    public void constantAlwaysWaitsTheSame() {
+        final BackoffPolicy backoff = BackoffPolicy.constant(100);
+        assertEquals(100, backoff.delay(1, 0));
+        assertEquals(100, backoff.delay(5, 100));
+    }
+
+    @Test
+    public void linearAddsIncrement() {
+        final BackoffPolicy backoff = BackoffPolicy.linear(100, 50);
+        assertEquals(100, backoff.delay(1, 0));
+        assertEquals(150, backoff.delay(2, 100));
+        assertEquals(200, backoff.delay(3, 150));
+    }
+
+    @Test
+    public void exponentialMultipliesPreviousDelay() {
+        final BackoffPolicy backoff = BackoffPolicy.exponential(1000, 2);
+        assertEquals(1000, backoff.delay(1, 0));
+        assertEquals(2000, backoff.delay(2, 1000));
+        assertEquals(4000, backoff.delay(3, 2000));
+    }
+
+    @Test
+    public void maxDelayCapsDelay() {
+        final BackoffPolicy backoff = BackoffPolicy.exponential(1000, 2).withMaxDelay(3000);
+        assertEquals(2000, backoff.delay(2, 1000));
+        assertEquals(3000, backoff.delay(3, 2000));
+        assertEquals(3000, backoff.delay(4, 3000));
+    }
+
+    @Test
+    public void fullJitterStaysWithinBounds() {
+        final BackoffPolicy backoff = BackoffPolicy.fullJitter(100, 2, 1000);
+        for(int i = 0; i < 1000; i++) {
+            final long delay = backoff.delay(3, 0);
+            assertTrue(delay >= 0 && delay <= 400);
+            assertTrue(backoff.delay(10, 0) <= 1000);
+        }
+    }
+
+    @Test
+    public void equalJitterStaysWithinBounds() {
+        final BackoffPolicy backoff = BackoffPolicy.equalJitter(100, 2, 1000);
+        for(int i = 0; i < 1000; i++) {
+            final long delay = backoff.delay(3, 0);
+            assertTrue(delay >= 200 && delay <= 400);
+        }
+    }
+
+    @Test
+    public void decorrelatedJitterStaysWithinBounds() {
+        final BackoffPolicy backoff = BackoffPolicy.decorrelatedJitter(100, 1000);
+        long delay = 0;
+        for(int i = 1; i < 1000; i++) {
+            final long previous = delay;
+            delay = backoff.delay(i, delay);
+            assertTrue(delay >= 100 && delay <= 1000);
+            assertTrue(i == 1 || delay <= Math.max(previous, 100) * 3);
+        }
+    }
+
+    @Test
+    public void jitterDrawsFromGivenRandomSource() {
+        assertEquals(0, BackoffPolicy.fullJitter(100, 2, 1000, () -> 0).delay(3, 0));
+        assertEquals(400, BackoffPolicy.fullJitter(100, 2, 1000, () -> 0.9999999).delay(3, 0));
+        assertEquals(250, BackoffPolicy.equalJitter(100, 2, 1000, () -> 0.25).delay(3, 0));
+        assertEquals(100, BackoffPolicy.decorrelatedJitter(100, 1000, () -> 0).delay(1, 0));
+    }
+
+    @Test
+    public void seededJitterIsReproducible() {
+        final BackoffPolicy first = BackoffPolicy.fullJitter(100, 2, 1000, new SplittableRandom(7)::nextDouble);
+        final BackoffPolicy second = BackoffPolicy.fullJitter(100, 2, 1000, new SplittableRandom(7)::nextDouble);
+        for(int i = 1; i < 100; i++) {
+            assertEquals(first.delay(i, 0), second.delay(i, 0));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeWait() {
+        BackoffPolicy.constant(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMaxDelayBelowWait() {
+        BackoffPolicy.fullJitter(100, 2, 50);
+    }
+}
@@ -0,0 +1,205 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class BulkheadTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void rejectsCallsWhenFull() throws Exception {
+        final Bulkhead bulkhead = Bulkhead.of("backend", 2);
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Supplier<Either<String, String>> f = Bulkhead.withBulkheadSupply(
+                () -> {
+                    started.countDown();
+                    await(release);
+                    return "TEST";
+                },
+                Exception::getMessage,
+                bulkhead);
+
+        final Future<Either<String, String>> first = executor.submit(f::get);
+        final Future<Either<String, String>> second = executor.submit(f::get);
+        started.await();
+
+        assertEquals(2, bulkhead.inFlight());
+        assertEquals("bulkhead backend is full", f.get().getLeft().get());
+        assertEquals(1, bulkhead.rejected());
+
+        release.countDown();
+        assertEquals("TEST", first.get(1, TimeUnit.SECONDS).getRight().get());
+        assertEquals("TEST", second.get(1, TimeUnit.SECONDS).getRight().get());
+        assertEquals(0, bulkhead.inFlight());
+    }
+
+    @Test
+    public void waitsForPermit() throws Exception {
+        final Bulkhead bulkhead = Bulkhead.builder("backend", 1)
+                .maxWait(1, TimeUnit.SECONDS)
+                .build();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Function<Boolean, String> f = Bulkhead.withBulkhead(
+                (Boolean block) -> {
+                    if(block) {
+                        started.countDown();
+                        await(release);
+                    }
+                    return "TEST";
+                },
+                bulkhead);
+
+        executor.submit(() -> f.apply(true));
+        started.await();
+        executor.submit(() -> {
+            Thread.sleep(50);
+            release.countDown();
+            return null;
+        });
+
+        assertEquals("TEST", f.apply(false));
+        assertEquals(0, bulkhead.rejected());
+    }
+
+    @Test
+    public void rejectsAfterMaxWait() throws Exception {
+        final Bulkhead bulkhead = Bulkhead.builder("backend", 1)
+                .maxWait(20, TimeUnit.MILLISECONDS)
+                .build();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Function<Boolean, String> f = Bulkhead.withBulkhead(
+                (Boolean block) -> {
+                    started.countDown();
+                    await(release);
+                    return "TEST";
+                },
+                bulkhead);
+
+        executor.submit(() -> f.apply(true));
+        started.await();
+        try {
+            f.apply(false);
+            fail("expected BulkheadFullException");
+        }
+        catch(Bulkhead.BulkheadFullException e) {
+            assertEquals(1, bulkhead.rejected());
+        }
+        finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void rejectsWhenTooManyAreWaiting() throws Exception {
+        final Bulkhead bulkhead = Bulkhead.builder("backend", 1)
+                .maxWait(1, TimeUnit.SECONDS)
+                .maxWaiting(0)
+                .build();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Supplier<Either<String, String>> f = Bulkhead.withBulkheadSupply(
+                () -> {
+                    started.countDown();
+                    await(release);
+                    return "TEST";
+                },
+                Exception::getMessage,
+                bulkhead);
+
+        executor.submit(f::get);
+        started.await();
+        final long start = System.nanoTime();
+        assertTrue(f.get().isLeft());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        release.countDown();
+    }
+
+    @Test
+    public void permitsAreSharedAcrossStripes() throws Exception {
+        final Bulkhead bulkhead = Bulkhead.of("backend", 5);
+        final AtomicInteger concurrent = new AtomicInteger(0);
+        final AtomicInteger maxConcurrent = new AtomicInteger(0);
+        final Supplier<Either<String, String>> f = Bulkhead.withBulkheadSupply(
+                () -> {
+                    maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(5);
+                    }
+                    catch(InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    concurrent.decrementAndGet();
+                    return "TEST";
+                },
+                Exception::getMessage,
+                bulkhead);
+
+        final List<Future<Either<String, String>>> results = new ArrayList<>();
+        for(int i = 0; i < 50; i++) {
+            results.add(executor.submit(f::get));
+        }
+        int accepted = 0;
+        for(Future<Either<String, String>> result : results) {
+            if(result.get().isRight()) {
+                accepted++;
+            }
+        }
+        assertTrue(maxConcurrent.get() <= 5);
+        assertEquals(50, accepted + bulkhead.rejected());
+        assertEquals(0, bulkhead.inFlight());
+    }
+
+    @Test
+    public void runnableReportsRejection() throws Exception {
+        final Bulkhead bulkhead = Bulkhead.of("backend", 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final Runnable blocking = Bulkhead.withBulkheadRun(
+                () -> {
+                    started.countDown();
+                    await(release);
+                },
+                error::set,
+                bulkhead);
+
+        executor.submit(blocking);
+        started.await();
+        blocking.run();
+        release.countDown();
+        assertTrue(error.get() instanceof Bulkhead.BulkheadFullException);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        }
+        catch(InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class CancellationTokenTest {
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void cancellingCutsTheBackoffShort() throws Exception {
+        final CancellationToken token = CancellationToken.create();
+        final CountDownLatch failed = new CountDownLatch(1);
+        final Supplier<Either<Exception, String>> f = RetryPolicy.of(3, BackoffPolicy.constant(60_000))
+                .withRetriesSupply(
+                        () -> {
+                            failed.countDown();
+                            return "test";
+                        },
+                        d -> false,
+                        e -> e);
+
+        final Future<Either<Exception, String>> result = scheduler.submit(() -> token.call(f));
+        failed.await();
+        token.cancel();
+
+        assertTrue(result.get(1, TimeUnit.SECONDS).getLeft().get() instanceof CancellationException);
+    }
+
+    @Test
+    public void attemptsSeeTheToken() {
+        final CancellationToken token = CancellationToken.create();
+        final AtomicInteger attempts = new AtomicInteger(0);
+        final Supplier<Either<Exception, String>> f = RetryPolicy.of(5, BackoffPolicy.constant(0))
+                .withRetriesSupply(
+                        () -> {
+                            assertSame(token, CancellationToken.current().get());
+                            if(attempts.incrementAndGet() == 2) {
+                                CancellationToken.current().get().cancel();
+                            }
+                            return "test";
+                        },
+                        d -> false,
+                        e -> e);
+
+        assertTrue(token.call(f).getLeft().get() instanceof CancellationException);
+        assertEquals(2, attempts.get());
+        assertFalse(CancellationToken.current().isPresent());
+    }
+
+    @Test
+    public void interruptionIsPreserved() {
+        final Supplier<Either<Exception, String>> f = RetryPolicy.of(3, BackoffPolicy.constant(60_000))
+                .withRetriesSupply(() -> "test", d -> false, e -> e);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertTrue(f.get().getLeft().get() instanceof InterruptedException);
+            assertTrue(Thread.currentThread().isInterrupted());
+        }
+        finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void cancellingStopsAsyncRetries() throws Exception {
+        final CancellationToken token = CancellationToken.create();
+        final AtomicInteger attempts = new AtomicInteger(0);
+        final CompletableFuture<Either<Exception, String>> result = token.call(() -> AsyncRetry.withRetriesSupply(
+                () -> {
+                    attempts.incrementAndGet();
+                    return CompletableFuture.completedFuture("test");
+                },
+                d -> false,
+                e -> e,
+                RetryPolicy.of(3, BackoffPolicy.constant(60_000)),
+                scheduler).get());
+
+        token.cancel();
+
+        assertTrue(result.get(1, TimeUnit.SECONDS).getLeft().get() instanceof CancellationException);
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void cancelledTokenPreventsAttempts() {
+        final CancellationToken token = CancellationToken.create();
+        token.cancel();
+        final AtomicInteger attempts = new AtomicInteger(0);
+        final Either<Exception, Integer> result = token.call(RetryPolicy.of(3, BackoffPolicy.constant(0))
+                .withRetriesSupply(attempts::incrementAndGet, d -> true, e -> e));
+
+        assertTrue(result.getLeft().get() instanceof CancellationException);
+        assertEquals(0, attempts.get());
+    }
+
+    @Test
+    public void closedRegistrationIsNotRun() {
+        final CancellationToken token = CancellationToken.create();
+        final AtomicInteger runs = new AtomicInteger(0);
+        token.onCancel(runs::incrementAndGet).close();
+        token.onCancel(runs::incrementAndGet);
+        assertEquals(1, token.registrations());
+
+        token.cancel();
+        token.cancel();
+
+        assertEquals(1, runs.get());
+        assertEquals(0, token.registrations());
+    }
+
+    @Test
+    public void longLivedTokenDoesNotKeepFinishedCalls() throws Exception {
+        final CancellationToken token = CancellationToken.create();
+        final Supplier<Either<Exception, String>> timed = RetryPolicy.builder(2)
+                .backoff(BackoffPolicy.constant(0))
+                .attemptTimeout(1, TimeUnit.SECONDS)
+                .executor(scheduler)
+                .build()
+                .withRetriesSupply(() -> "test", d -> true, e -> e);
+        final Supplier<CompletableFuture<Either<Exception, String>>> async = AsyncRetry.withRetriesSupply(
+                () -> CompletableFuture.completedFuture("test"),
+                d -> true,
+                e -> e,
+                RetryPolicy.of(2, BackoffPolicy.constant(0)),
+                scheduler);
+
+        for(int i = 0; i < 100; i++) {
+            assertTrue(token.call(timed).isRight());
+            assertTrue(token.call(async).get(1, TimeUnit.SECONDS).isRight());
+        }
+
+        assertEquals(0, token.registrations());
+    }
+
+    @Test
+    public void asyncCallFinishesOnce() throws Exception {
+        final CancellationToken token = CancellationToken.create();
+        final AtomicInteger outcomes = new AtomicInteger(0);
+        final RetryPolicy policy = RetryPolicy.builder(3)
+                .backoff(BackoffPolicy.constant(0))
+                .listener(new RetryListener() {
+                    @Override
+                    public void onSuccess(int attempts, long elapsedNanos) {
+                        outcomes.incrementAndGet();
+                        //cancelling while the call is completing must not make it give up as well
+                        token.cancel();
+                    }
+
+                    @Override
+                    public void onGiveUp(int attempts, Throwable reason, long elapsedNanos) {
+                        outcomes.incrementAndGet();
+                    }
+                })
+                .build();
+
+        final CompletableFuture<Either<Exception, String>> result = token.call(() -> AsyncRetry.withRetriesSupply(
+                () -> CompletableFuture.completedFuture("test"),
+                d -> true,
+                e -> e,
+                policy,
+                scheduler).get());
+
+        assertEquals("test", result.get(1, TimeUnit.SECONDS).rightValue());
+        assertEquals(1, outcomes.get());
+    }
+}
@@ -0,0 +1,195 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensWhenFailureRateIsReached() {
+        final CircuitBreaker breaker = CircuitBreaker.countBased(4)
+                .minimumCalls(4)
+                .failureRateThreshold(0.5)
+                .openDuration(1, TimeUnit.MINUTES)
+                .build();
+        final AtomicBoolean failing = new AtomicBoolean(false);
+        final AtomicInteger calls = new AtomicInteger(0);
+        final Function<String, Either<String, String>> f = CircuitBreaker.withCircuitBreaker(
+                (String s) -> {
+                    calls.incrementAndGet();
+                    if(failing.get()) {
+                        throw new RuntimeException("down");
+                    }
+                    return s.toUpperCase();
+                },
+                e -> e.getMessage(),
+                breaker);
+
+        assertEquals("TEST", f.apply("test").getRight().get());
+        assertEquals("TEST", f.apply("test").getRight().get());
+        failing.set(true);
+        assertEquals("down", f.apply("test").getLeft().get());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals("down", f.apply("test").getLeft().get());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals("circuit breaker is open", f.apply("test").getLeft().get());
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    public void halfOpenTrialClosesBreaker() {
+        final VirtualTime time = new VirtualTime();
+        final CircuitBreaker breaker = CircuitBreaker.countBased(2)
+                .minimumCalls(1)
+                .openDuration(20, TimeUnit.MILLISECONDS)
+                .timeSource(time)
+                .build();
+        final AtomicBoolean failing = new AtomicBoolean(true);
+        final Supplier<Either<String, String>> f = CircuitBreaker.eitherWithCircuitBreakerSupply(
+                () -> failing.get() ? Either.left("bad") : Either.right("good"),
+                e -> e.getMessage(),
+                breaker);
+
+        assertEquals("bad", f.get().getLeft().get());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals("circuit breaker is open", f.get().getLeft().get());
+        time.advance(20, TimeUnit.MILLISECONDS);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        failing.set(false);
+        assertEquals("good", f.get().getRight().get());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    public void failedHalfOpenTrialReopensBreaker() {
+        final VirtualTime time = new VirtualTime();
+        final CircuitBreaker breaker = CircuitBreaker.timeBased(1, TimeUnit.SECONDS)
+                .minimumCalls(1)
+                .openDuration(20, TimeUnit.MILLISECONDS)
+                .timeSource(time)
+                .build();
+        final Supplier<String> f = CircuitBreaker.withCircuitBreakerSupply(
+                () -> {
+                    throw new IllegalStateException("down");
+                },
+                breaker);
+
+        expect(IllegalStateException.class, f);
+        expect(CircuitBreaker.CircuitBreakerOpenException.class, f);
+        time.advance(20, TimeUnit.MILLISECONDS);
+        expect(IllegalStateException.class, f);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    @Test
+    public void staysOpenForTheOpenDuration() {
+        final VirtualTime time = new VirtualTime();
+        final CircuitBreaker breaker = CircuitBreaker.countBased(2)
+                .minimumCalls(1)
+                .openDuration(30, TimeUnit.SECONDS)
+                .timeSource(time)
+                .build();
+        final Supplier<Either<String, String>> f = CircuitBreaker.eitherWithCircuitBreakerSupply(
+                () -> Either.left("bad"),
+                e -> e.getMessage(),
+                breaker);
+
+        assertEquals("bad", f.get().getLeft().get());
+        time.advance(29_999, TimeUnit.MILLISECONDS);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals("circuit breaker is open", f.get().getLeft().get());
+        time.advance(1, TimeUnit.MILLISECONDS);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertEquals("bad", f.get().getLeft().get());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    @Test
+    public void oldFailuresDropOutOfTheTimeWindow() {
+        final VirtualTime time = new VirtualTime();
+        final CircuitBreaker breaker = CircuitBreaker.timeBased(10, TimeUnit.SECONDS)
+                .minimumCalls(3)
+                .failureRateThreshold(0.6)
+                .timeSource(time)
+                .build();
+        final AtomicBoolean failing = new AtomicBoolean(true);
+        final Supplier<Either<String, String>> f = CircuitBreaker.eitherWithCircuitBreakerSupply(
+                () -> failing.get() ? Either.left("bad") : Either.right("good"),
+                e -> e.getMessage(),
+                breaker);
+
+        f.get();
+        f.get();
+        time.advance(11, TimeUnit.SECONDS);
+        failing.set(false);
+        assertEquals("good", f.get().getRight().get());
+        failing.set(true);
+        //with the first two failures this would be 3 failures out of 4 calls, but only 2 calls are in the window
+        assertEquals("bad", f.get().getLeft().get());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals("bad", f.get().getLeft().get());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    @Test
+    public void composesWithRetry() {
+        final CircuitBreaker breaker = CircuitBreaker.countBased(10)
+                .minimumCalls(1)
+                .build();
+        final Supplier<Either<String, String>> f = CircuitBreaker.eitherWithCircuitBreakerSupply(
+                Retry.withRetriesSupply(
+                        () -> "TE",
+                        d -> d.equals("TEST"),
+                        e -> "error: " + e.getMessage(),
+                        2,
+                        BackoffPolicy.constant(1)),
+                e -> "error: " + e.getMessage(),
+                breaker);
+        assertEquals("error: retried 2 times but failed", f.get().getLeft().get());
+        assertEquals("error: circuit breaker is open", f.get().getLeft().get());
+    }
+
+    private static void expect(Class<? extends Exception> expected, Supplier<?> f) {
+        try {
+            f.get();
+            fail();
+        }
+        catch(Exception e) {
+            assertEquals(expected, e.getClass());
+        }
+    }
+
+    @Test
+    public void stacklessRejectionsShareOneException() {
+        final List<Exception> rejections = new ArrayList<>();
+        final CircuitBreaker breaker = CircuitBreaker.countBased(1)
+                .minimumCalls(1)
+                .openDuration(1, TimeUnit.MINUTES)
+                .stacklessExceptions(true)
+                .build();
+        final Supplier<Either<Exception, String>> f = CircuitBreaker.eitherWithCircuitBreakerSupply(
+                () -> Either.left(new RuntimeException("down")),
+                e -> e,
+                breaker);
+
+        f.get();
+        for(int i = 0; i < 2; i++) {
+            rejections.add(f.get().getLeft().get());
+        }
+        assertTrue(rejections.get(0) instanceof CircuitBreaker.CircuitBreakerOpenException);
+        assertSame(rejections.get(0), rejections.get(1));
+        assertEquals(0, rejections.get(0).getStackTrace().length);
+    }
+}
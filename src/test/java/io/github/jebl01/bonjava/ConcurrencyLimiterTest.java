@@ -0,0 +1,158 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ConcurrencyLimiterTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void rejectsCallsOverTheLimit() throws Exception {
+        final ConcurrencyLimiter limiter = ConcurrencyLimiter.aimd(1, 1, 10, 0.5);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Supplier<Either<String, String>> f = ConcurrencyLimiter.withConcurrencyLimitSupply(
+                () -> {
+                    started.countDown();
+                    await(release);
+                    return "TEST";
+                },
+                Exception::getMessage,
+                limiter);
+
+        final Future<Either<String, String>> first = executor.submit(f::get);
+        started.await();
+        assertEquals(1, limiter.inFlight());
+        assertEquals("concurrency limit exceeded", f.get().getLeft().get());
+
+        release.countDown();
+        assertEquals("TEST", first.get(1, TimeUnit.SECONDS).getRight().get());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    public void aimdGrowsWhenUsedAndShrinksOnFailure() {
+        final ConcurrencyLimiter limiter = ConcurrencyLimiter.aimd(2, 1, 3, 0.5);
+        final Function<Boolean, Either<String, Boolean>> f = ConcurrencyLimiter.eitherWithConcurrencyLimit(
+                (Boolean fail) -> fail ? Either.left("failed") : Either.right(true),
+                Exception::getMessage,
+                limiter);
+
+        f.apply(false);
+        assertEquals(3, limiter.limit());
+        f.apply(false);
+        assertEquals(3, limiter.limit());
+        assertEquals("failed", f.apply(true).getLeft().get());
+        assertEquals(1, limiter.limit());
+        f.apply(false);
+        assertEquals(2, limiter.limit());
+    }
+
+    @Test
+    public void exceptionsCountAsFailures() {
+        final ConcurrencyLimiter limiter = ConcurrencyLimiter.aimd(4, 1, 10, 0.5);
+        final Function<String, String> f = ConcurrencyLimiter.withConcurrencyLimit(
+                (String d) -> {
+                    throw new IllegalStateException(d);
+                },
+                limiter);
+
+        try {
+            f.apply("boom");
+        }
+        catch(IllegalStateException e) {
+            assertEquals("boom", e.getMessage());
+        }
+        assertEquals(2, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    public void gradientShrinksWhenLatencyGrows() {
+        final ConcurrencyLimiter.Limit limit = new ConcurrencyLimiter.GradientLimit(20, 1, 100);
+        for(int i = 0; i < 100; i++) {
+            limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), limit.get(), false);
+        }
+        final int settled = limit.get();
+        assertTrue(settled > 20);
+        for(int i = 0; i < 20; i++) {
+            limit.onSample(TimeUnit.MILLISECONDS.toNanos(100), limit.get(), false);
+        }
+        assertTrue(limit.get() < settled);
+    }
+
+    @Test
+    public void gradientIgnoresLatencyWhenMostlyIdle() {
+        final ConcurrencyLimiter.Limit limit = new ConcurrencyLimiter.GradientLimit(20, 1, 100);
+        for(int i = 0; i < 100; i++) {
+            limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), 1, false);
+        }
+        assertEquals(20, limit.get());
+    }
+
+    @Test
+    public void gradientShrinksOnFailure() {
+        final ConcurrencyLimiter limiter = ConcurrencyLimiter.gradient(20, 1, 100);
+        final Supplier<String> f = ConcurrencyLimiter.withConcurrencyLimitSupply(
+                () -> {
+                    throw new IllegalStateException();
+                },
+                limiter);
+        for(int i = 0; i < 10; i++) {
+            try {
+                f.get();
+            }
+            catch(IllegalStateException ignored) {
+            }
+        }
+        assertTrue(limiter.limit() < 20);
+    }
+
+    @Test
+    public void retriesCountAgainstTheLimit() {
+        final AtomicInteger attempts = new AtomicInteger(0);
+        final ConcurrencyLimiter limiter = ConcurrencyLimiter.aimd(10, 1, 10, 0.5);
+        final Function<String, Either<String, String>> f = Retry.withRetries(
+                ConcurrencyLimiter.withConcurrencyLimit(
+                        (String d) -> {
+                            if(attempts.incrementAndGet() < 3) {
+                                throw new IllegalStateException();
+                            }
+                            return d.toUpperCase();
+                        },
+                        limiter),
+                d -> true,
+                Exception::getMessage,
+                RetryPolicy.of(3, BackoffPolicy.constant(0)));
+
+        assertEquals("TEST", f.apply("test").getRight().get());
+        //halved by the two failed attempts, then grown by the successful one
+        assertEquals(3, limiter.limit());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        }
+        catch(InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
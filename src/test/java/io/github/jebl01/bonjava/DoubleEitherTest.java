@@ -0,0 +1,30 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DoubleEitherTest {
+    @Test
+    public void nanIsAValidRight() {
+        final DoubleEither<String> either = DoubleEither.right(Double.NaN);
+        assertTrue(either.isRight());
+        assertTrue(Double.isNaN(either.rightValue()));
+        assertTrue(Double.isNaN(either.getRight().getAsDouble()));
+        assertTrue(Double.isNaN(DoubleEither.fromEither(either.toEither()).rightValue()));
+    }
+
+    @Test
+    public void keepsNegativeZero() {
+        //compared through the bits, as -0.0 == 0.0
+        assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(DoubleEither.right(-0.0).rightValue()));
+        assertEquals(Double.valueOf(-0.0), DoubleEither.right(-0.0).toEither().rightValue());
+    }
+
+    @Test
+    public void boxesOnlyWhenAsked() {
+        assertEquals(Double.valueOf(1.5), DoubleEither.right(1.5).toEither().rightValue());
+        assertEquals("1.5", DoubleEither.right(1.5).mapToObj(Double::toString).rightValue());
+    }
+}
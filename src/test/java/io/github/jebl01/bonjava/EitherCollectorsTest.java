@@ -0,0 +1,91 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+public class EitherCollectorsTest {
+
+    @Test
+    public void partitionsLeftsAndRights() {
+        final Tuple.Tuple2<List<String>, List<Integer>> result = Stream.of(
+                Either.<String, Integer>right(1),
+                Either.<String, Integer>left("a"),
+                Either.<String, Integer>right(2),
+                Either.<String, Integer>left("b"))
+                .collect(EitherCollectors.partition());
+
+        assertEquals(Arrays.asList("a", "b"), result.v1);
+        assertEquals(Arrays.asList(1, 2), result.v2);
+    }
+
+    @Test
+    public void collectsAllRights() {
+        final Either<String, List<Integer>> result = Stream.of(Either.<String, Integer>right(1), Either.<String, Integer>right(2))
+                .collect(EitherCollectors.rightsOrFirstLeft());
+
+        assertEquals(Arrays.asList(1, 2), result.rightValue());
+    }
+
+    @Test
+    public void collectsFirstLeft() {
+        final Either<String, List<Integer>> result = Stream.of(
+                Either.<String, Integer>right(1),
+                Either.<String, Integer>left("a"),
+                Either.<String, Integer>left("b"))
+                .collect(EitherCollectors.rightsOrFirstLeft());
+
+        assertEquals("a", result.leftValue());
+    }
+
+    @Test
+    public void collectsAllLefts() {
+        final Either<List<String>, List<Integer>> result = Stream.of(
+                Either.<String, Integer>left("a"),
+                Either.<String, Integer>right(1),
+                Either.<String, Integer>left("b"))
+                .collect(EitherCollectors.rightsOrAllLefts());
+
+        assertEquals(Arrays.asList("a", "b"), result.leftValue());
+    }
+
+    @Test
+    public void emptyStreamIsRight() {
+        assertEquals(Collections.emptyList(), Stream.<Either<String, Integer>>empty()
+                .collect(EitherCollectors.rightsOrAllLefts())
+                .rightValue());
+    }
+
+    @Test
+    public void keepsOrderInParallelStreams() {
+        final List<Either<Integer, Integer>> eithers = IntStream.range(0, 100_000)
+                .mapToObj(i -> i % 1000 == 999 ? Either.<Integer, Integer>left(i) : Either.<Integer, Integer>right(i))
+                .collect(Collectors.toList());
+
+        final Tuple.Tuple2<List<Integer>, List<Integer>> partition = eithers.parallelStream()
+                .collect(EitherCollectors.partition());
+        assertEquals(100, partition.v1.size());
+        assertEquals(99_900, partition.v2.size());
+        for(int i = 1; i < partition.v2.size(); i++) {
+            assertEquals(true, partition.v2.get(i - 1) < partition.v2.get(i));
+        }
+
+        assertEquals(Integer.valueOf(999), eithers.parallelStream()
+                .collect(EitherCollectors.rightsOrFirstLeft())
+                .leftValue());
+
+        final List<Integer> lefts = eithers.parallelStream()
+                .collect(EitherCollectors.rightsOrAllLefts())
+                .leftValue();
+        assertEquals(100, lefts.size());
+        assertEquals(Integer.valueOf(999), lefts.get(0));
+        assertEquals(Integer.valueOf(99_999), lefts.get(99));
+    }
+}
@@ -11,7 +11,15 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.Test;
 
@@ -160,4 +168,68 @@ public class EitherTest {
         Either<String, String> either = left("fail");
         assertEquals("success", either.getOrThrow(IllegalArgumentException::new));
     }
+
+    @Test
+    public void canGetValuesDirectly() {
+        Either<String, String> rightEither = right("success");
+        Either<String, String> leftEither = left("fail");
+        assertEquals("success", rightEither.rightValue());
+        assertEquals("fail", leftEither.leftValue());
+        assertEquals("other", rightEither.leftOrElse("other"));
+        assertEquals("success", rightEither.rightOrElse("other"));
+        assertEquals("fail", leftEither.leftOrElse("other"));
+        assertEquals("other", leftEither.rightOrElse("other"));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void willThrowIfValueIsMissing() {
+        Either<String, String> either = left("fail");
+        either.rightValue();
+    }
+
+    @Test
+    public void canFold() {
+        Either<String, Integer> rightEither = right(2);
+        Either<String, Integer> leftEither = left("fail");
+        assertEquals("4", rightEither.fold(l -> l, r -> String.valueOf(r * 2)));
+        assertEquals("fail", leftEither.fold(l -> l, r -> String.valueOf(r * 2)));
+    }
+
+    @Test
+    public void canSequence() {
+        assertEquals(Arrays.asList(1, 2, 3), Either.sequence(Arrays.asList(right(1), right(2), right(3))).rightValue());
+        assertEquals("first", Either.sequence(Arrays.asList(right(1), left("first"), left("second"))).leftValue());
+        assertTrue(Either.sequence(new ArrayList<Either<String, Integer>>()).rightValue().isEmpty());
+    }
+
+    @Test
+    public void traverseStopsAtFirstLeft() {
+        AtomicInteger calls = new AtomicInteger();
+        Either<String, List<Integer>> result = Either.traverse(Arrays.asList(1, 2, 3, 4), i -> {
+            calls.incrementAndGet();
+            return i % 2 == 0 ? left("even " + i) : right(i);
+        });
+        assertEquals("even 2", result.leftValue());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void canTraverseInParallel() {
+        List<Integer> values = IntStream.range(0, 10_000).boxed().collect(Collectors.toList());
+        Either<String, List<Integer>> result = Either.traverseParallel(values, i -> right(i * 2), new ForkJoinPool(4));
+        assertEquals(values.stream().map(i -> i * 2).collect(Collectors.toList()), result.rightValue());
+    }
+
+    @Test
+    public void parallelTraverseSkipsRemainingValuesOnLeft() {
+        AtomicInteger calls = new AtomicInteger();
+        List<Integer> values = IntStream.range(0, 10_000).boxed().collect(Collectors.toList());
+        Either<String, List<Integer>> result = Either.traverseParallel(values, i -> {
+            calls.incrementAndGet();
+            return i == 0 ? left("fail") : right(i);
+        }, new ForkJoinPool(1));
+        assertEquals("fail", result.leftValue());
+        //with a single thread the first range runs first, so nothing after the failing value is looked at
+        assertEquals(1, calls.get());
+    }
 }
@@ -0,0 +1,205 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class FallbackChainTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void triesAlternativesInOrderUntilOneSucceeds() {
+        final AtomicInteger calls = new AtomicInteger(0);
+        final Function<String, Either<List<String>, String>> f = FallbackChain.withFallbacks(
+                Arrays.<Function<String, String>>asList(
+                        d -> {
+                            calls.incrementAndGet();
+                            throw new IllegalStateException("primary down");
+                        },
+                        String::toUpperCase),
+                Exception::getMessage);
+
+        assertEquals("TEST", f.apply("test").getRight().get());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void accumulatesAllFailures() {
+        final Supplier<Either<List<String>, String>> f = FallbackChain.eitherWithFallbacksSupply(
+                Arrays.<Supplier<Either<String, String>>>asList(
+                        () -> Either.left("cache miss"),
+                        () -> {
+                            throw new IllegalStateException("replica down");
+                        }),
+                Exception::getMessage);
+
+        assertEquals(Arrays.asList("cache miss", "replica down"), f.get().getLeft().get());
+    }
+
+    @Test
+    public void prefersTheAlternativeMostLikelyToSucceed() {
+        final AtomicInteger failing = new AtomicInteger(0);
+        final AtomicInteger working = new AtomicInteger(0);
+        final Supplier<Either<List<String>, String>> f = FallbackChain.withFallbacksSupply(
+                Arrays.<Supplier<String>>asList(
+                        () -> {
+                            failing.incrementAndGet();
+                            throw new IllegalStateException("down");
+                        },
+                        () -> {
+                            working.incrementAndGet();
+                            return "TEST";
+                        }),
+                Exception::getMessage);
+
+        for(int i = 0; i < 1000; i++) {
+            assertEquals("TEST", f.get().getRight().get());
+        }
+        assertEquals(1000, working.get());
+        //the failing alternative is only tried first once in a while, to see if it has recovered
+        assertTrue(failing.get() < 100);
+    }
+
+    @Test
+    public void racesTheTwoBestAlternatives() {
+        final CountDownLatch release = new CountDownLatch(1);
+        final Supplier<Either<List<String>, String>> f = FallbackChain.withFallbacksSupply(
+                Arrays.<Supplier<String>>asList(
+                        () -> {
+                            try {
+                                release.await();
+                            }
+                            catch(InterruptedException e) {
+                                throw new IllegalStateException(e);
+                            }
+                            return "SLOW";
+                        },
+                        () -> "FAST"),
+                Exception::getMessage,
+                executor);
+
+        assertEquals("FAST", f.get().getRight().get());
+        release.countDown();
+    }
+
+    @Test
+    public void racedFailuresFallBackToTheRest() {
+        final Supplier<Either<List<String>, String>> f = FallbackChain.eitherWithFallbacksSupply(
+                Arrays.<Supplier<Either<String, String>>>asList(
+                        () -> Either.left("first"),
+                        () -> Either.left("second"),
+                        () -> Either.right("THIRD")),
+                Exception::getMessage,
+                executor);
+
+        assertEquals("THIRD", f.get().getRight().get());
+    }
+
+    @Test
+    public void cancelledRaceLoserIsNotPenalised() throws Exception {
+        final ExecutorService raceExecutor = Executors.newCachedThreadPool();
+        final FallbackChain<Void, String, String> chain = FallbackChain.create(
+                Arrays.<Function<Void, Either<String, String>>>asList(
+                        ignored -> Either.right("fast"),
+                        ignored -> {
+                            try {
+                                Thread.sleep(5_000);
+                            }
+                            catch(InterruptedException e) {
+                                throw new IllegalStateException("interrupted");
+                            }
+                            return Either.right("slow");
+                        }),
+                Exception::getMessage,
+                raceExecutor);
+
+        assertEquals("fast", chain.call(null).rightValue());
+        raceExecutor.shutdown();
+        assertTrue(raceExecutor.awaitTermination(1, TimeUnit.SECONDS));
+
+        assertTrue(chain.score(0) < Double.MAX_VALUE);
+        assertEquals(Double.MAX_VALUE, chain.score(1), 0);
+    }
+
+    @Test
+    public void rejectedRacerIsTriedAfterTheFirst() throws Exception {
+        final CountDownLatch firstStarted = new CountDownLatch(1);
+        //a single thread and no queue, rejecting the second alternative once the first is running
+        final ExecutorService singleThread = new ThreadPoolExecutor(
+                1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                (task, pool) -> {
+                    try {
+                        firstStarted.await();
+                    }
+                    catch(InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new RejectedExecutionException("busy");
+                });
+        final AtomicInteger firstCalls = new AtomicInteger(0);
+        final AtomicInteger secondCalls = new AtomicInteger(0);
+        try {
+            final FallbackChain<Void, String, String> chain = FallbackChain.create(
+                    Arrays.<Function<Void, Either<String, String>>>asList(
+                            ignored -> {
+                                firstCalls.incrementAndGet();
+                                firstStarted.countDown();
+                                return Either.left("first down");
+                            },
+                            ignored -> {
+                                secondCalls.incrementAndGet();
+                                return Either.right("second");
+                            }),
+                    Exception::getMessage,
+                    singleThread);
+
+            assertEquals("second", chain.call(null).rightValue());
+            assertEquals(1, firstCalls.get());
+            assertEquals(1, secondCalls.get());
+        }
+        finally {
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void latenciesAreMeasuredWithTheTimeSource() {
+        final VirtualTime time = new VirtualTime();
+        final FallbackChain<Void, String, String> chain = FallbackChain.create(
+                Arrays.<Function<Void, Either<String, String>>>asList(ignored -> {
+                    time.advance(10, TimeUnit.MILLISECONDS);
+                    return Either.right("value");
+                }),
+                Exception::getMessage,
+                null,
+                time);
+
+        assertEquals("value", chain.call(null).rightValue());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), chain.score(0), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requiresAnAlternative() {
+        FallbackChain.withFallbacksSupply(Arrays.<Supplier<String>>asList(), Exception::getMessage);
+    }
+}
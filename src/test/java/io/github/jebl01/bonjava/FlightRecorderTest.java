@@ -0,0 +1,127 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+public class FlightRecorderTest {
+
+    @Test
+    public void recordsRetryEvents() {
+        final FlightRecorder recorder = FlightRecorder.create(16);
+        final AtomicInteger attempts = new AtomicInteger(0);
+        final Function<String, String> f = RetryPolicy.builder(3)
+                .backoff(BackoffPolicy.constant(0))
+                .listener(recorder.listener("upper"))
+                .build()
+                .withRetries(
+                        (String d) -> {
+                            if(attempts.incrementAndGet() == 1) {
+                                throw new IllegalStateException("fail");
+                            }
+                            return d.toUpperCase();
+                        },
+                        d -> true);
+
+        assertEquals("TEST", f.apply("test"));
+
+        final List<FlightRecorder.Event> events = recorder.dump();
+        assertEquals(3, events.size());
+        assertEquals(FlightRecorder.Outcome.ATTEMPT_FAILURE, events.get(0).outcome());
+        assertEquals(IllegalStateException.class, events.get(0).exception());
+        assertEquals("upper", events.get(0).wrapper());
+        assertEquals(1, events.get(0).attempt());
+        assertEquals(FlightRecorder.Outcome.BACKOFF, events.get(1).outcome());
+        assertEquals(FlightRecorder.Outcome.SUCCESS, events.get(2).outcome());
+        assertEquals(2, events.get(2).attempt());
+        assertNull(events.get(2).exception());
+    }
+
+    @Test
+    public void recordsHandledExceptions() {
+        final FlightRecorder recorder = FlightRecorder.create(16);
+        final Function<String, Integer> parse = ExceptionHandling.withExceptionHandler(
+                Integer::parseInt,
+                recorder.handler("parse", e -> -1));
+
+        assertEquals(Integer.valueOf(-1), parse.apply("x"));
+        assertEquals(Integer.valueOf(1), parse.apply("1"));
+
+        final List<FlightRecorder.Event> events = recorder.dump();
+        assertEquals(1, events.size());
+        assertEquals(FlightRecorder.Outcome.HANDLED, events.get(0).outcome());
+        assertEquals(NumberFormatException.class, events.get(0).exception());
+    }
+
+    @Test
+    public void recordsConsumedExceptions() {
+        final FlightRecorder recorder = FlightRecorder.create(8);
+        final List<Throwable> seen = new ArrayList<>();
+        final Consumer<Throwable> handler = recorder.handlerConsume("consumer", e -> seen.add(e));
+        final IllegalStateException failure = new IllegalStateException();
+
+        handler.accept(failure);
+
+        assertEquals(1, seen.size());
+        assertEquals("consumer", recorder.dump().get(0).wrapper());
+        assertEquals(FlightRecorder.Outcome.HANDLED, recorder.dump().get(0).outcome());
+    }
+
+    @Test
+    public void keepsTheMostRecentEvents() {
+        final FlightRecorder recorder = FlightRecorder.create(5);
+        final Function<Throwable, Integer> handler = recorder.handler("handler", e -> 0);
+        for(int i = 0; i < 20; i++) {
+            handler.apply(new IllegalStateException());
+        }
+
+        final List<FlightRecorder.Event> events = recorder.dump();
+        //the capacity is rounded up to 8
+        assertEquals(8, events.size());
+        assertEquals(12, events.get(0).sequence());
+        assertEquals(19, events.get(7).sequence());
+    }
+
+    @Test
+    public void recordsConcurrently() throws Exception {
+        final FlightRecorder recorder = FlightRecorder.create(1 << 16);
+        final Function<Throwable, Integer> handler = recorder.handler("handler", e -> 0);
+        final IllegalStateException failure = new IllegalStateException();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Future<?>[] writers = new Future<?>[4];
+            for(int i = 0; i < writers.length; i++) {
+                writers[i] = executor.submit(() -> {
+                    for(int j = 0; j < 10_000; j++) {
+                        handler.apply(failure);
+                    }
+                });
+            }
+            for(Future<?> writer : writers) {
+                writer.get(10, TimeUnit.SECONDS);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        final List<FlightRecorder.Event> events = recorder.dump();
+        assertEquals(40_000, events.size());
+        for(int i = 0; i < events.size(); i++) {
+            assertEquals(i, events.get(i).sequence());
+            assertTrue(events.get(i).outcome() == FlightRecorder.Outcome.HANDLED);
+        }
+    }
+}
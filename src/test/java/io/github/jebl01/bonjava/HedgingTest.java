@@ -0,0 +1,170 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class HedgingTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testHappyCase() {
+        Either<String, String> result = Hedging.withHedging(
+                (String d) -> d.toUpperCase(),
+                d -> d.equals("TEST"),
+                e -> "error: " + e.getMessage(),
+                2,
+                Hedging.fixedDelay(100),
+                executor).apply("test");
+        assertEquals("TEST", result.getRight().get());
+    }
+
+    @Test
+    public void testSlowAttemptIsHedgedAndCancelled() throws Exception {
+        final AtomicInteger attemptNo = new AtomicInteger(0);
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        final long start = System.nanoTime();
+        Either<String, String> result = Hedging.withHedgingSupply(
+                () -> {
+                    if(attemptNo.incrementAndGet() == 1) {
+                        try {
+                            Thread.sleep(5000);
+                        }
+                        catch(InterruptedException e) {
+                            cancelled.countDown();
+                        }
+                        return "SLOW";
+                    }
+                    return "FAST";
+                },
+                d -> true,
+                e -> "error: " + e.getMessage(),
+                2,
+                Hedging.fixedDelay(20),
+                executor).get();
+        assertEquals("FAST", result.getRight().get());
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+        assertTrue(cancelled.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailedAttemptStartsNextAttemptImmediately() {
+        final AtomicInteger attemptNo = new AtomicInteger(0);
+        final long start = System.nanoTime();
+        Either<String, String> result = Hedging.withHedgingSupply(
+                () -> "TE" + attemptNo.incrementAndGet(),
+                d -> d.equals("TE3"),
+                e -> "error: " + e.getMessage(),
+                3,
+                Hedging.fixedDelay(5000),
+                executor).get();
+        assertEquals("TE3", result.getRight().get());
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+    }
+
+    @Test
+    public void testAllAttemptsFail() {
+        Either<String, String> result = Hedging.<String, String>withHedgingSupply(
+                () -> {
+                    throw new RuntimeException("things failed");
+                },
+                d -> true,
+                e -> "error: " + e.getMessage(),
+                3,
+                Hedging.fixedDelay(10),
+                executor).get();
+        assertEquals("error: hedged 3 attempts but failed with exception", result.getLeft().get());
+    }
+
+    @Test
+    public void testPercentileDelayFollowsLatencies() {
+        final Hedging.Delay delay = Hedging.percentileDelay(0.9, 500);
+        assertEquals(500, delay.millisecWait());
+        for(int i = 0; i < 100; i++) {
+            delay.record(TimeUnit.MILLISECONDS.toNanos(i < 90 ? 10 : 100));
+        }
+        final long wait = delay.millisecWait();
+        assertTrue(wait >= 10 && wait < 12);
+    }
+
+    @Test
+    public void testPercentileDelayKeepsSubMillisecondLatencies() {
+        final Hedging.Delay delay = Hedging.percentileDelay(0.9, 500);
+        for(int i = 0; i < 100; i++) {
+            delay.record(TimeUnit.MICROSECONDS.toNanos(800));
+        }
+        assertEquals(1, delay.millisecWait());
+        final long wait = delay.nanosWait();
+        assertTrue(wait >= TimeUnit.MICROSECONDS.toNanos(800) && wait < TimeUnit.MICROSECONDS.toNanos(900));
+    }
+
+    @Test
+    public void testPercentileDelayNeverWaitsLessThanAMicrosecond() {
+        final Hedging.Delay delay = Hedging.percentileDelay(0.9, 500);
+        for(int i = 0; i < 100; i++) {
+            delay.record(300);
+        }
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(1), delay.nanosWait());
+    }
+
+    @Test
+    public void testPercentileDelayFallsBackWhenDecayedToEmpty() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final Hedging.Delay delay = new Hedging.PercentileDelay(0.9, 500, histogram);
+        for(int i = 0; i < 100; i++) {
+            delay.record(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        for(int i = 0; i < 7; i++) {
+            histogram.decay();
+        }
+        assertEquals(0, histogram.count());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), delay.nanosWait());
+        assertEquals(500, delay.millisecWait());
+    }
+
+    @Test
+    public void testFastDependencyIsOnlyHedgedForSlowestCalls() {
+        final AtomicInteger calls = new AtomicInteger();
+        final Hedging.Delay delay = Hedging.percentileDelay(0.9, 500);
+        final Supplier<Either<String, Integer>> hedged = Hedging.withHedgingSupply(
+                () -> {
+                    final int call = calls.incrementAndGet();
+                    //one call in twenty is slow, the others take a few hundred microseconds
+                    spin(call % 20 == 0 ? 5_000 : 300);
+                    return call;
+                },
+                d -> true,
+                e -> "error: " + e.getMessage(),
+                3,
+                delay,
+                executor);
+        final int requests = 1000;
+        for(int i = 0; i < requests; i++) {
+            assertTrue(hedged.get().isRight());
+        }
+        //hedging the slowest ~10% (plus scheduling noise), rather than every call
+        final int hedges = calls.get() - requests;
+        assertTrue("hedges: " + hedges, hedges < requests * 0.2);
+    }
+
+    private static void spin(long micros) {
+        final long end = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(micros);
+        while(System.nanoTime() < end) {
+            //busy wait, as sleeps aren't precise enough
+        }
+    }
+}
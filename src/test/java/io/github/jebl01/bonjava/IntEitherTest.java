@@ -0,0 +1,73 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+public class IntEitherTest {
+    @Test
+    public void rightIsRight() {
+        final IntEither<String> either = IntEither.right(1);
+        assertTrue(either.isRight());
+        assertFalse(either.isLeft());
+        assertEquals(1, either.rightValue());
+        assertEquals(1, either.getRight().getAsInt());
+        assertFalse(either.getLeft().isPresent());
+    }
+
+    @Test
+    public void leftIsLeft() {
+        final IntEither<String> either = IntEither.left("fail");
+        assertTrue(either.isLeft());
+        assertEquals("fail", either.leftValue());
+        assertEquals(-1, either.rightOrElse(-1));
+        assertFalse(either.getRight().isPresent());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void willThrowIfNotRight() {
+        IntEither.left("fail").rightValue();
+    }
+
+    @Test
+    public void canChainValidations() {
+        final IntEither<String> result = IntEither.<String>right(20)
+                .flatMap(age -> age >= 18 ? IntEither.right(age) : IntEither.left("too young"))
+                .map(age -> age * 12);
+        assertEquals(240, result.rightValue());
+
+        final IntEither<String> failed = IntEither.<String>right(12)
+                .flatMap(age -> age >= 18 ? IntEither.right(age) : IntEither.left("too young"))
+                .map(age -> age * 12);
+        assertEquals("too young", failed.leftValue());
+    }
+
+    @Test
+    public void mappingTheOtherSideReturnsTheSameInstance() {
+        final IntEither<String> left = IntEither.left("fail");
+        final IntEither<String> right = IntEither.right(1);
+        assertSame(left, left.map(i -> i + 1));
+        assertSame(right, right.mapLeft(String::length));
+        assertEquals(Integer.valueOf(4), left.mapLeft(String::length).leftValue());
+    }
+
+    @Test
+    public void canFold() {
+        assertEquals("2", IntEither.<String>right(1).fold(l -> l, r -> String.valueOf(r + 1)));
+        assertEquals("fail", IntEither.<String>left("fail").fold(l -> l, r -> String.valueOf(r + 1)));
+    }
+
+    @Test
+    public void canConvertToAndFromEither() {
+        assertEquals(Integer.valueOf(1), IntEither.right(1).toEither().rightValue());
+        assertEquals("fail", IntEither.left("fail").toEither().leftValue());
+        assertEquals(1, IntEither.fromEither(Either.<String, Integer>right(1)).rightValue());
+        assertEquals("fail", IntEither.fromEither(Either.<String, Integer>left("fail")).leftValue());
+        assertEquals("1", IntEither.right(1).mapToObj(String::valueOf).rightValue());
+    }
+}
@@ -0,0 +1,25 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LongEitherTest {
+    @Test
+    public void keepsExtremeValues() {
+        assertEquals(Long.MIN_VALUE, LongEither.right(Long.MIN_VALUE).rightValue());
+        assertEquals(Long.MAX_VALUE, LongEither.right(Long.MAX_VALUE).getRight().getAsLong());
+        assertEquals(Long.MIN_VALUE, LongEither.fromEither(LongEither.right(Long.MIN_VALUE).toEither()).rightValue());
+    }
+
+    @Test
+    public void overflowsLikeLongArithmetic() {
+        assertEquals(Long.MIN_VALUE, LongEither.right(Long.MAX_VALUE).map(v -> v + 1).rightValue());
+    }
+
+    @Test
+    public void boxesOnlyWhenAsked() {
+        assertEquals(Long.valueOf(3L), LongEither.right(3L).toEither().rightValue());
+        assertEquals("3", LongEither.right(3L).mapToObj(Long::toString).rightValue());
+    }
+}
@@ -0,0 +1,139 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RateLimitTest {
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void allowsBurstThenRejects() {
+        final Function<String, Either<String, String>> f = RateLimit.withRateLimit(
+                (String d) -> d.toUpperCase(),
+                Exception::getMessage,
+                RateLimit.of(3, 1, TimeUnit.HOURS));
+
+        for(int i = 0; i < 3; i++) {
+            assertEquals("TEST", f.apply("test").getRight().get());
+        }
+        assertEquals("rate limit exceeded", f.apply("test").getLeft().get());
+    }
+
+    @Test
+    public void permitsAreRefilledOverTime() {
+        final VirtualTime time = new VirtualTime();
+        final RateLimit limit = RateLimit.of(1, 50, TimeUnit.MILLISECONDS, 1, time);
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        time.advance(49, TimeUnit.MILLISECONDS);
+        assertFalse(limit.tryAcquire());
+        time.advance(1, TimeUnit.MILLISECONDS);
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    public void exceptionsAreMappedToLeft() {
+        final Supplier<Either<String, String>> f = RateLimit.withRateLimitSupply(
+                () -> {
+                    throw new IllegalStateException("boom");
+                },
+                Exception::getMessage,
+                RateLimit.of(1, 1, TimeUnit.SECONDS));
+
+        assertEquals("boom", f.get().getLeft().get());
+    }
+
+    @Test
+    public void blockingCallsWaitForPermits() {
+        final VirtualTime time = new VirtualTime();
+        final Supplier<Long> f = RateLimit.withRateLimitSupply(
+                time::nanoTime,
+                RateLimit.of(1, 50, TimeUnit.MILLISECONDS, 1, time));
+
+        assertEquals(0L, f.get().longValue());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), f.get().longValue());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), f.get().longValue());
+    }
+
+    @Test
+    public void interruptedCallsGiveBackTheirPermit() {
+        final RateLimit limit = RateLimit.of(1, 1, TimeUnit.HOURS, 1);
+        final Supplier<String> f = RateLimit.withRateLimitSupply(() -> "called", limit);
+        assertEquals("called", f.get());
+
+        Thread.currentThread().interrupt();
+        try {
+            f.get();
+            fail("expected InterruptedException");
+        }
+        catch(Exception e) {
+            assertTrue(e instanceof InterruptedException);
+        }
+        assertTrue(Thread.interrupted());
+
+        // the arrival is two hours ahead, it would be three without the give back
+        assertTrue(limit.reserve() - System.nanoTime() < TimeUnit.MINUTES.toNanos(150));
+    }
+
+    @Test
+    public void asyncCallsAreScheduled() throws Exception {
+        final AtomicInteger calls = new AtomicInteger(0);
+        final Supplier<CompletableFuture<Integer>> f = RateLimit.withRateLimitSupplyAsync(
+                () -> CompletableFuture.completedFuture(calls.incrementAndGet()),
+                RateLimit.of(1, 100, TimeUnit.MILLISECONDS, 1),
+                scheduler);
+
+        assertEquals(1, f.get().get().intValue());
+        final CompletableFuture<Integer> second = f.get();
+        assertFalse(second.isDone());
+        assertEquals(2, second.get(1, TimeUnit.SECONDS).intValue());
+    }
+
+    @Test
+    public void concurrentCallersNeverExceedTheLimit() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final RateLimit limit = RateLimit.of(100, 1, TimeUnit.HOURS);
+            final AtomicInteger allowed = new AtomicInteger(0);
+            final List<Future<?>> futures = new ArrayList<>();
+            for(int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for(int j = 0; j < 1000; j++) {
+                        if(limit.tryAcquire()) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for(Future<?> future : futures) {
+                future.get();
+            }
+            assertEquals(100, allowed.get());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+}
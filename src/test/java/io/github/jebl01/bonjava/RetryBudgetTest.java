@@ -0,0 +1,69 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+public class RetryBudgetTest {
+
+    @Test
+    public void startsWithFullBalance() {
+        final RetryBudget budget = RetryBudget.create(0.1, 2, 0);
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+    }
+
+    @Test
+    public void successesEarnRetries() {
+        final RetryBudget budget = RetryBudget.create(0.5, 10, 0);
+        while(budget.tryWithdraw()) {
+        }
+        budget.deposit();
+        assertFalse(budget.tryWithdraw());
+        budget.deposit();
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+    }
+
+    @Test
+    public void balanceIsCapped() {
+        final RetryBudget budget = RetryBudget.create(1, 2, 0);
+        for(int i = 0; i < 10; i++) {
+            budget.deposit();
+        }
+        assertEquals(2, budget.available(), 0.001);
+    }
+
+    @Test
+    public void minRetriesPerSecondAreAlwaysAllowed() {
+        final RetryBudget budget = RetryBudget.create(0, 0, 3);
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+    }
+
+    @Test
+    public void depletedBudgetFailsFast() {
+        final RetryBudget budget = RetryBudget.create(0.1, 1, 0);
+        final AtomicInteger attempts = new AtomicInteger(0);
+        final Supplier<Either<String, String>> f = Retry.withRetriesSupply(
+                () -> "TE" + attempts.incrementAndGet(),
+                d -> d.equals("TEST"),
+                e -> "error: " + e.getMessage(),
+                RetryPolicy.builder(3)
+                        .backoff(BackoffPolicy.constant(10))
+                        .budget(budget)
+                        .build());
+        assertEquals("error: retry budget exhausted after 2 attempts", f.get().getLeft().get());
+        assertEquals(2, attempts.get());
+        assertEquals("error: retry budget exhausted after 1 attempts", f.get().getLeft().get());
+        assertEquals(3, attempts.get());
+    }
+}
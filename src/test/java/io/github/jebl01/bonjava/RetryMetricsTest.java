@@ -0,0 +1,94 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+public class RetryMetricsTest {
+    private final RetryMetrics metrics = new RetryMetrics();
+    private final RetryPolicy policy = RetryPolicy.builder(3)
+            .backoff(BackoffPolicy.constant(5))
+            .listener(metrics)
+            .build();
+
+    @Test
+    public void countsFirstAttemptSuccess() {
+        final Function<String, String> f = policy.withRetries((String d) -> d.toUpperCase(), d -> true);
+        f.apply("test");
+        f.apply("test");
+
+        assertEquals(2, metrics.calls());
+        assertEquals(2, metrics.attempts());
+        assertEquals(2, metrics.successes());
+        assertEquals(0, metrics.retriedCalls());
+        assertEquals(0, metrics.backoffs());
+        assertTrue(metrics.callLatencyMicros(0.5) >= 0);
+    }
+
+    @Test
+    public void countsRetriesAndBackoff() {
+        final AtomicInteger attempts = new AtomicInteger(0);
+        final Supplier<String> f = policy.withRetriesSupply(
+                () -> {
+                    if(attempts.incrementAndGet() == 1) {
+                        throw new IllegalStateException();
+                    }
+                    return attempts.get() == 2 ? "TE" : "TEST";
+                },
+                d -> d.equals("TEST"));
+
+        assertEquals("TEST", f.get());
+        assertEquals(1, metrics.calls());
+        assertEquals(3, metrics.attempts());
+        assertEquals(1, metrics.attemptFailures());
+        assertEquals(1, metrics.attemptRejections());
+        assertEquals(2, metrics.backoffs());
+        assertEquals(10, metrics.backoffMillis());
+        assertEquals(1, metrics.retriedCalls());
+        assertEquals(1, metrics.successes());
+    }
+
+    @Test
+    public void countsGiveUps() {
+        final Supplier<Either<String, String>> f = policy.withRetriesSupply(
+                () -> "TE",
+                d -> d.equals("TEST"),
+                Exception::getMessage);
+
+        f.get();
+        final Map<String, Long> snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.get("giveUps").longValue());
+        assertEquals(3, snapshot.get("attemptRejections").longValue());
+        assertEquals(0, snapshot.get("successes").longValue());
+    }
+
+    @Test
+    public void countsAsyncAttempts() throws Exception {
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            final AtomicInteger attempts = new AtomicInteger(0);
+            final String result = AsyncRetry.withRetriesSupply(
+                    () -> CompletableFuture.completedFuture(attempts.incrementAndGet() < 2 ? "TE" : "TEST"),
+                    d -> d.equals("TEST"),
+                    policy,
+                    scheduler).get().get();
+
+            assertEquals("TEST", result);
+            assertEquals(2, metrics.attempts());
+            assertEquals(1, metrics.backoffs());
+            assertEquals(1, metrics.retriedCalls());
+        }
+        finally {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+public class RetryPolicyTest {
+    private final RetryPolicy policy = RetryPolicy.of(3, BackoffPolicy.constant(0));
+
+    @Test
+    public void decoratedFunctionCanBeReused() {
+        final AtomicInteger attempts = new AtomicInteger(0);
+        final Function<String, String> f = policy.withRetries(
+                (String d) -> attempts.incrementAndGet() % 2 == 0 ? d.toUpperCase() : d,
+                d -> d.equals("TEST"));
+
+        assertEquals("TEST", f.apply("test"));
+        assertEquals("TEST", f.apply("test"));
+        assertEquals(4, attempts.get());
+    }
+
+    @Test(expected = Retry.RetryException.class)
+    public void decoratedFunctionThrowsWhenExhausted() {
+        policy.withRetries((String d) -> d, d -> false).apply("test");
+    }
+
+    @Test
+    public void decoratedFunctionMapsErrors() {
+        final Function<String, Either<String, String>> f = policy.withRetries(
+                (String d) -> {
+                    throw new IllegalStateException(d);
+                },
+                d -> true,
+                e -> "error: " + e.getMessage());
+
+        assertEquals("error: retried 3 times but failed with exception", f.apply("test").getLeft().get());
+    }
+
+    @Test
+    public void acceptedRightIsPassedOnAsIs() {
+        final Either<Integer, String> right = Either.right("TEST");
+        final Function<String, Either<String, String>> f = policy.eitherWithRetries(
+                (String d) -> right,
+                d -> d.equals("TEST"),
+                Exception::getMessage);
+
+        assertSame(right, f.apply("test"));
+    }
+
+    @Test
+    public void decoratedSupplierRetries() {
+        final AtomicInteger attempts = new AtomicInteger(0);
+        final Supplier<Either<String, String>> f = policy.eitherWithRetriesSupply(
+                () -> attempts.incrementAndGet() < 3 ? Either.left(1) : Either.right("TEST"),
+                d -> true,
+                Exception::getMessage);
+
+        assertEquals("TEST", f.get().getRight().get());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void decoratedRunnableReportsFailure() {
+        final AtomicInteger attempts = new AtomicInteger(0);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        policy.withRetriesRun(
+                () -> {
+                    attempts.incrementAndGet();
+                    throw new IllegalStateException();
+                },
+                error::set).run();
+
+        assertEquals(3, attempts.get());
+        assertTrue(error.get() instanceof Retry.RetryException);
+    }
+
+    @Test
+    public void abortsOnNonRetryableException() {
+        final AtomicInteger attempts = new AtomicInteger(0);
+        final Supplier<Either<Exception, String>> f = RetryPolicy.builder(5)
+                .retryOn(IOException.class)
+                .build()
+                .withRetriesSupply(
+                        () -> {
+                            attempts.incrementAndGet();
+                            throw new IllegalArgumentException();
+                        },
+                        d -> true,
+                        e -> e);
+
+        final Exception error = f.get().getLeft().get();
+        assertEquals(1, attempts.get());
+        assertEquals("aborted after 1 attempts on non retryable exception", error.getMessage());
+        assertTrue(error.getCause() instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void retriesOnExceptionInCauseChain() {
+        final AtomicInteger attempts = new AtomicInteger(0);
+        final Supplier<String> f = RetryPolicy.builder(3)
+                .retryOn(IOException.class)
+                .build()
+                .withRetriesSupply(
+                        () -> {
+                            if(attempts.incrementAndGet() < 3) {
+                                throw new UncheckedIOException(new IOException());
+                            }
+                            return "TEST";
+                        },
+                        d -> true);
+
+        assertEquals("TEST", f.get());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void abortOnTakesPrecedence() {
+        final AtomicInteger attempts = new AtomicInteger(0);
+        final Supplier<Either<Exception, String>> f = RetryPolicy.builder(5)
+                .retryOn(RuntimeException.class)
+                .abortOn(IllegalArgumentException.class)
+                .build()
+                .withRetriesSupply(
+                        () -> {
+                            attempts.incrementAndGet();
+                            throw new IllegalStateException(new IllegalArgumentException());
+                        },
+                        d -> true,
+                        e -> e);
+
+        assertTrue(f.get().isLeft());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void retriesOnlyMatchingPredicate() {
+        final AtomicInteger attempts = new AtomicInteger(0);
+        final Supplier<Either<Exception, String>> f = RetryPolicy.builder(5)
+                .retryIf(e -> attempts.get() < 2)
+                .build()
+                .withRetriesSupply(
+                        () -> {
+                            attempts.incrementAndGet();
+                            throw new IllegalStateException();
+                        },
+                        d -> true,
+                        e -> e);
+
+        assertTrue(f.get().isLeft());
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void permanentLeftIsReturnedImmediately() {
+        final AtomicInteger attempts = new AtomicInteger(0);
+        final Supplier<Either<String, String>> f = policy.eitherWithRetriesSupply(
+                () -> Either.left(attempts.incrementAndGet() < 2 ? "unavailable" : "not found"),
+                d -> true,
+                Exception::getMessage,
+                left -> left.equals("unavailable"));
+
+        assertEquals("not found", f.get().getLeft().get());
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void retryableLeftIsRetried() {
+        final Supplier<Either<String, String>> f = policy.eitherWithRetriesSupply(
+                () -> Either.left("unavailable"),
+                d -> true,
+                Exception::getMessage,
+                left -> true);
+
+        final Either<String, String> result = f.get();
+        assertFalse(result.isRight());
+        assertEquals("retried 3 times but failed", result.getLeft().get());
+    }
+
+    @Test
+    public void stacklessExceptionsAreShared() {
+        final Supplier<Either<Exception, String>> f = RetryPolicy.builder(3)
+                .stacklessExceptions(true)
+                .build()
+                .withRetriesSupply(() -> "test", d -> false, e -> e);
+
+        final Exception first = f.get().getLeft().get();
+        assertSame(first, f.get().getLeft().get());
+        assertEquals(0, first.getStackTrace().length);
+        assertEquals("retried 3 times but failed", first.getMessage());
+    }
+
+    @Test
+    public void stacklessExceptionsKeepTheirCause() {
+        final IllegalStateException failure = new IllegalStateException("fail");
+        final Supplier<Either<Exception, String>> f = RetryPolicy.builder(3)
+                .stacklessExceptions(true)
+                .build()
+                .withRetriesSupply(
+                        () -> {
+                            throw failure;
+                        },
+                        d -> true,
+                        e -> e);
+
+        final Exception result = f.get().getLeft().get();
+        assertSame(failure, result.getCause());
+        assertEquals(0, result.getStackTrace().length);
+    }
+}
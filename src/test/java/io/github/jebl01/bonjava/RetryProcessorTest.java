@@ -0,0 +1,142 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RetryProcessorTest {
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+    private final RetryPolicy policy = RetryPolicy.of(3, BackoffPolicy.constant(5));
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void retriesElementsAndKeepsTheirOrder() throws Exception {
+        final Map<Integer, AtomicInteger> attempts = new ConcurrentHashMap<>();
+        final List<Either<String, Integer>> results = Collections.synchronizedList(new ArrayList<>());
+        final RetryProcessor<Integer, String, Integer> processor = RetryProcessor.<Integer, String, Integer>builder(
+                i -> {
+                    final int attempt = attempts.computeIfAbsent(i, k -> new AtomicInteger()).incrementAndGet();
+                    //odd elements need a retry, and element 3 never succeeds
+                    return CompletableFuture.completedFuture(i == 3 || (i % 2 == 1 && attempt == 1) ? -1 : i * 10);
+                },
+                r -> r >= 0,
+                Exception::getMessage,
+                policy,
+                scheduler)
+                .maxInFlight(8)
+                .build(results::add);
+
+        for(int i = 0; i < 6; i++) {
+            assertTrue(processor.offer(i));
+        }
+        processor.complete();
+        processor.completion().get(5, TimeUnit.SECONDS);
+
+        assertEquals(6, results.size());
+        assertEquals(Arrays.asList(0, 10, 20), Arrays.asList(
+                results.get(0).getRight().get(),
+                results.get(1).getRight().get(),
+                results.get(2).getRight().get()));
+        assertTrue(results.get(3).isLeft());
+        assertEquals(Arrays.asList(40, 50), Arrays.asList(
+                results.get(4).getRight().get(),
+                results.get(5).getRight().get()));
+    }
+
+    @Test
+    public void requestsOnlyWhatItHasCapacityFor() throws Exception {
+        final AtomicLong requested = new AtomicLong();
+        final List<CompletableFuture<Integer>> pending = Collections.synchronizedList(new ArrayList<>());
+        final List<Either<String, Integer>> results = Collections.synchronizedList(new ArrayList<>());
+        final RetryProcessor<Integer, String, Integer> processor = RetryProcessor.<Integer, String, Integer>builder(
+                i -> {
+                    final CompletableFuture<Integer> result = new CompletableFuture<>();
+                    pending.add(result);
+                    return result;
+                },
+                r -> true,
+                Exception::getMessage,
+                policy,
+                scheduler)
+                .maxInFlight(2)
+                .onRequest(requested::addAndGet)
+                .build(results::add);
+
+        assertEquals(2, requested.get());
+        assertTrue(processor.offer(1));
+        assertTrue(processor.offer(2));
+        assertFalse(processor.offer(3));
+        assertEquals(0, processor.capacity());
+
+        //the second element is done, but waits for the first
+        pending.get(1).complete(2);
+        assertEquals(2, requested.get());
+        assertTrue(results.isEmpty());
+
+        pending.get(0).complete(1);
+        assertEquals(4, requested.get());
+        assertEquals(2, results.size());
+        assertEquals(2, processor.capacity());
+    }
+
+    @Test
+    public void unorderedPassesResultsOnWhenDone() {
+        final List<CompletableFuture<Integer>> pending = Collections.synchronizedList(new ArrayList<>());
+        final List<Either<String, Integer>> results = Collections.synchronizedList(new ArrayList<>());
+        final RetryProcessor<Integer, String, Integer> processor = RetryProcessor.<Integer, String, Integer>builder(
+                i -> {
+                    final CompletableFuture<Integer> result = new CompletableFuture<>();
+                    pending.add(result);
+                    return result;
+                },
+                r -> true,
+                Exception::getMessage,
+                policy,
+                scheduler)
+                .unordered()
+                .build(results::add);
+
+        processor.offer(1);
+        processor.offer(2);
+        pending.get(1).complete(2);
+
+        assertEquals(1, results.size());
+        assertEquals(Integer.valueOf(2), results.get(0).getRight().get());
+    }
+
+    @Test
+    public void completesExceptionallyWhenDownstreamThrows() throws Exception {
+        final RetryProcessor<Integer, String, Integer> processor = RetryProcessor.<Integer, String, Integer>builder(
+                CompletableFuture::completedFuture,
+                r -> true,
+                Exception::getMessage,
+                policy,
+                scheduler)
+                .build(r -> {
+                    throw new IllegalStateException("downstream failed");
+                });
+
+        processor.offer(1);
+        assertTrue(processor.completion().isCompletedExceptionally());
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+public class RetrySimulationTest {
+
+    @Test
+    public void backoffsPassInVirtualTime() {
+        final VirtualTime time = new VirtualTime();
+        final Supplier<Either<Exception, String>> f = RetryPolicy.builder(3)
+                .backoff(BackoffPolicy.constant(60_000))
+                .timeSource(time)
+                .build()
+                .withRetriesSupply(() -> "test", d -> false, e -> e);
+
+        final long start = System.nanoTime();
+        assertTrue(f.get().isLeft());
+        assertEquals(120_000, TimeUnit.NANOSECONDS.toMillis(time.nanoTime()));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void maxDurationIsMeasuredInVirtualTime() {
+        final VirtualTime time = new VirtualTime();
+        final RetryMetrics metrics = new RetryMetrics();
+        final Supplier<Either<Exception, String>> f = RetryPolicy.builder(10)
+                .backoff(BackoffPolicy.constant(1_000))
+                .maxDuration(2_500, TimeUnit.MILLISECONDS)
+                .timeSource(time)
+                .listener(metrics)
+                .build()
+                .withRetriesSupply(() -> "test", d -> false, e -> e);
+
+        assertTrue(f.get().isLeft());
+        assertEquals(3, metrics.attempts());
+    }
+
+    @Test
+    public void retriesMaskIndependentFailures() {
+        final RetrySimulation.Result result = RetrySimulation.simulate(
+                random -> RetryPolicy.builder(3).backoff(BackoffPolicy.fullJitter(10, 2, 1_000, random)),
+                RetrySimulation.Model.independentFailures(0.2, 5),
+                100_000,
+                42);
+
+        assertEquals(100_000, result.metrics().calls());
+        assertTrue(result.successRate() > 0.99);
+        assertTrue(result.attemptsPerCall() > 1.2 && result.attemptsPerCall() < 1.3);
+        assertTrue(result.throughput() > 0);
+    }
+
+    @Test
+    public void simulationIsDeterministic() {
+        final RetrySimulation.Result first = RetrySimulation.simulate(
+                random -> RetryPolicy.builder(5).backoff(BackoffPolicy.decorrelatedJitter(10, 10_000, random)),
+                RetrySimulation.Model.outages(1_000, 200, 5),
+                10_000,
+                7);
+        final RetrySimulation.Result second = RetrySimulation.simulate(
+                random -> RetryPolicy.builder(5).backoff(BackoffPolicy.decorrelatedJitter(10, 10_000, random)),
+                RetrySimulation.Model.outages(1_000, 200, 5),
+                10_000,
+                7);
+
+        assertEquals(first.metrics().snapshot(), second.metrics().snapshot());
+        assertEquals(first.elapsedMillis(), second.elapsedMillis());
+    }
+
+    @Test
+    public void outagesLongerThanTheRetriesFail() {
+        final RetrySimulation.Result result = RetrySimulation.simulate(
+                random -> RetryPolicy.builder(2).backoff(BackoffPolicy.constant(10)),
+                RetrySimulation.Model.outages(1_000, 1_000, 5),
+                10_000,
+                1);
+
+        //200 calls of 5 ms succeed while up, 50 calls of 2 attempts and a backoff (20 ms) fail while down
+        assertEquals(0.8, result.successRate(), 0.01);
+    }
+}
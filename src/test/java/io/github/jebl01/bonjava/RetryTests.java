@@ -1,16 +1,24 @@
 package io.github.jebl01.bonjava;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
@@ -379,4 +387,202 @@ public class RetryTests {
             fail();
         }
     }
+
+    public static class BackoffPolicyRetry {
+        @Test
+        public void testRetrySomeWithBackoffPolicy() {
+            final List<String> convertedData = Arrays.asList("TE", "TES", "TEST");
+            final AtomicInteger retryNo = new AtomicInteger(0);
+            Either<String, String> result = Retry.withRetriesSupply(
+                    () -> convertedData.get(retryNo.getAndIncrement()),
+                    d -> d.equals("TEST"),
+                    e -> "error: " + e.getMessage(),
+                    3,
+                    BackoffPolicy.fullJitter(10, 2, 50)).get();
+            assertEquals("TEST", result.getRight().get());
+        }
+
+        @Test
+        public void testDoesNotWaitAfterLastAttempt() {
+            final long start = System.nanoTime();
+            Either<String, String> result = Retry.withRetriesSupply(
+                    () -> "TE",
+                    d -> d.equals("TEST"),
+                    e -> "error: " + e.getMessage(),
+                    1,
+                    BackoffPolicy.constant(5000)).get();
+            assertEquals("error: retried 1 times but failed", result.getLeft().get());
+            assertTrue(System.nanoTime() - start < 1_000_000_000L);
+        }
+    }
+
+    public static class TimeLimitedRetry {
+        @Test
+        public void testAttemptTimeoutAbandonsSlowAttempt() {
+            final AtomicInteger retryNo = new AtomicInteger(0);
+            Either<String, String> result = Retry.withRetriesSupply(
+                    () -> {
+                        if(retryNo.incrementAndGet() == 1) {
+                            sleep(5000);
+                        }
+                        return "TEST";
+                    },
+                    d -> true,
+                    e -> "error: " + e.getMessage(),
+                    RetryPolicy.builder(2)
+                            .attemptTimeout(50, TimeUnit.MILLISECONDS)
+                            .build()).get();
+            assertEquals("TEST", result.getRight().get());
+            assertEquals(2, retryNo.get());
+        }
+
+        @Test
+        public void testAttemptTimeoutFailsWithTimeoutCause() {
+            Either<Exception, String> result = Retry.withRetriesSupply(
+                    () -> {
+                        sleep(5000);
+                        return "TEST";
+                    },
+                    d -> true,
+                    e -> e,
+                    RetryPolicy.builder(1)
+                            .attemptTimeout(20, TimeUnit.MILLISECONDS)
+                            .build()).get();
+            assertTrue(result.getLeft().get().getCause() instanceof TimeoutException);
+        }
+
+        @Test
+        public void testMaxDurationStopsRetrying() {
+            final AtomicInteger retryNo = new AtomicInteger(0);
+            final VirtualTime time = new VirtualTime();
+            Either<String, String> result = Retry.withRetriesSupply(
+                    () -> "TE" + retryNo.incrementAndGet(),
+                    d -> d.equals("TEST"),
+                    e -> "error: " + e.getMessage(),
+                    RetryPolicy.builder(10)
+                            .backoff(BackoffPolicy.constant(100))
+                            .maxDuration(250, TimeUnit.MILLISECONDS)
+                            .timeSource(time)
+                            .build()).get();
+            assertEquals("error: deadline exceeded after 3 attempts", result.getLeft().get());
+            assertEquals(3, retryNo.get());
+            //gives up rather than sleeping past the deadline
+            assertEquals(TimeUnit.MILLISECONDS.toNanos(200), time.nanoTime());
+        }
+
+        @Test
+        public void testDeadlineIsVisibleToAttempt() {
+            final AtomicLong remaining = new AtomicLong(-1);
+            Retry.withRetries(
+                    (String d) -> {
+                        remaining.set(Deadline.current().get().remaining(TimeUnit.MILLISECONDS));
+                        return d;
+                    },
+                    d -> true,
+                    RetryPolicy.builder(1)
+                            .maxDuration(1, TimeUnit.MINUTES)
+                            .attemptTimeout(10, TimeUnit.SECONDS)
+                            .build()).apply("test");
+            assertTrue(remaining.get() > 9000 && remaining.get() <= 10000);
+            assertFalse(Deadline.current().isPresent());
+        }
+
+        private static void sleep(long millis) {
+            try {
+                Thread.sleep(millis);
+            }
+            catch(InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    public static class BatchRetry {
+        private static final RetryPolicy POLICY = RetryPolicy.of(3, BackoffPolicy.constant(0));
+
+        @Test
+        public void testOnlyFailedElementsAreRetried() {
+            final List<List<Integer>> batches = new ArrayList<>();
+            final Function<List<Integer>, Map<Integer, Either<String, Integer>>> f = Retry.withBatchRetries(
+                    (List<Integer> batch) -> {
+                        batches.add(batch);
+                        final Map<Integer, Either<String, Integer>> result = new HashMap<>();
+                        for(Integer i : batch) {
+                            result.put(i, i % 2 == 0 || batches.size() > 1 ? Either.right(i * 10) : Either.left("busy"));
+                        }
+                        return result;
+                    },
+                    r -> true,
+                    Exception::getMessage,
+                    POLICY);
+
+            final Map<Integer, Either<String, Integer>> result = f.apply(Arrays.asList(1, 2, 3, 4));
+            assertEquals(Arrays.asList(1, 2, 3, 4), new ArrayList<>(result.keySet()));
+            for(int i = 1; i <= 4; i++) {
+                assertEquals(i * 10, result.get(i).getRight().get().intValue());
+            }
+            assertEquals(Arrays.asList(Arrays.asList(1, 2, 3, 4), Arrays.asList(1, 3)), batches);
+        }
+
+        @Test
+        public void testStillFailingElementsGetLastLeft() {
+            final AtomicInteger attempts = new AtomicInteger(0);
+            final Map<Integer, Either<String, Integer>> result = Retry.withBatchRetries(
+                    (List<Integer> batch) -> {
+                        attempts.incrementAndGet();
+                        final Map<Integer, Either<String, Integer>> results = new HashMap<>();
+                        results.put(1, Either.right(1));
+                        results.put(2, Either.left("busy"));
+                        return results;
+                    },
+                    r -> true,
+                    Exception::getMessage,
+                    POLICY).apply(Arrays.asList(1, 2, 3));
+
+            assertEquals(3, attempts.get());
+            assertEquals(1, result.get(1).getRight().get().intValue());
+            assertEquals("busy", result.get(2).getLeft().get());
+            assertEquals("retried 3 times but failed", result.get(3).getLeft().get());
+        }
+
+        @Test
+        public void testFailedCallsAreRetried() {
+            final AtomicInteger attempts = new AtomicInteger(0);
+            final Map<String, Either<String, String>> result = Retry.withBatchRetries(
+                    (List<String> batch) -> {
+                        if(attempts.incrementAndGet() < 3) {
+                            throw new IllegalStateException("boom");
+                        }
+                        final Map<String, Either<String, String>> results = new HashMap<>();
+                        batch.forEach(s -> results.put(s, Either.right(s.toUpperCase())));
+                        return results;
+                    },
+                    r -> true,
+                    Exception::getMessage,
+                    POLICY).apply(Arrays.asList("a", "b"));
+
+            assertEquals("A", result.get("a").getRight().get());
+            assertEquals("B", result.get("b").getRight().get());
+        }
+
+        @Test
+        public void testNonRetryableLeftsAreFinal() {
+            final List<List<String>> batches = new ArrayList<>();
+            final Map<String, Either<String, String>> result = Retry.withBatchRetries(
+                    (List<String> batch) -> {
+                        batches.add(batch);
+                        final Map<String, Either<String, String>> results = new HashMap<>();
+                        batch.forEach(s -> results.put(s, Either.left(s.equals("a") ? "not found" : "busy")));
+                        return results;
+                    },
+                    r -> true,
+                    Exception::getMessage,
+                    left -> left.equals("busy"),
+                    POLICY).apply(Arrays.asList("a", "b"));
+
+            assertEquals("not found", result.get("a").getLeft().get());
+            assertEquals("busy", result.get("b").getLeft().get());
+            assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("b"), Arrays.asList("b")), batches);
+        }
+    }
 }
@@ -0,0 +1,153 @@
+package io.github.jebl01.bonjava;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class SingleFlightTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallersShareOneCall() throws Exception {
+        final AtomicInteger calls = new AtomicInteger(0);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Function<String, String> f = SingleFlight.withSingleFlight((String d) -> {
+            calls.incrementAndGet();
+            await(release);
+            return d.toUpperCase();
+        });
+
+        final List<Future<String>> results = new ArrayList<>();
+        for(int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> f.apply("test")));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        for(Future<String> result : results) {
+            assertEquals("TEST", result.get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void differentKeysAreNotCoalesced() throws Exception {
+        final AtomicInteger calls = new AtomicInteger(0);
+        final CountDownLatch started = new CountDownLatch(2);
+        final Function<String, String> f = SingleFlight.withSingleFlight((String d) -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(started);
+            return d.toUpperCase();
+        });
+
+        final Future<String> first = executor.submit(() -> f.apply("a"));
+        final Future<String> second = executor.submit(() -> f.apply("b"));
+
+        assertEquals("A", first.get(1, TimeUnit.SECONDS));
+        assertEquals("B", second.get(1, TimeUnit.SECONDS));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void keyIsForgottenAfterCompletion() {
+        final AtomicInteger calls = new AtomicInteger(0);
+        final Function<String, Integer> f = SingleFlight.withSingleFlight((String d) -> calls.incrementAndGet());
+
+        assertEquals(1, f.apply("test").intValue());
+        assertEquals(2, f.apply("test").intValue());
+    }
+
+    @Test
+    public void keyIsForgottenAfterFailure() {
+        final AtomicInteger calls = new AtomicInteger(0);
+        final Function<String, String> f = SingleFlight.withSingleFlight((String d) -> {
+            if(calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("boom");
+            }
+            return d;
+        });
+
+        try {
+            f.apply("test");
+            fail("expected exception");
+        }
+        catch(IllegalStateException e) {
+            assertEquals("boom", e.getMessage());
+        }
+        assertEquals("test", f.apply("test"));
+    }
+
+    @Test
+    public void waitingCallersGetLeftOnFailure() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final Function<String, Either<String, String>> f = SingleFlight.withSingleFlight(
+                Retry.withRetries(
+                        (String d) -> {
+                            await(release);
+                            throw new IllegalStateException("boom");
+                        },
+                        d -> true,
+                        RetryPolicy.of(2, BackoffPolicy.constant(0))),
+                e -> "error: " + e.getMessage());
+
+        final List<Future<Either<String, String>>> results = new ArrayList<>();
+        for(int i = 0; i < 4; i++) {
+            results.add(executor.submit(() -> f.apply("test")));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        for(Future<Either<String, String>> result : results) {
+            assertEquals("error: retried 2 times but failed with exception",
+                    result.get(1, TimeUnit.SECONDS).getLeft().get());
+        }
+    }
+
+    @Test
+    public void suppliersAreCoalesced() throws Exception {
+        final AtomicInteger calls = new AtomicInteger(0);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Supplier<Integer> f = SingleFlight.withSingleFlightSupply(() -> {
+            await(release);
+            return calls.incrementAndGet();
+        });
+
+        final Future<Integer> first = executor.submit(f::get);
+        final Future<Integer> second = executor.submit(f::get);
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals(1, first.get(1, TimeUnit.SECONDS).intValue());
+        assertEquals(1, second.get(1, TimeUnit.SECONDS).intValue());
+        assertTrue(f.get() > 1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        }
+        catch(InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package io.github.jebl01.bonjava;
+
+import static io.github.jebl01.bonjava.Validation.invalid;
+import static io.github.jebl01.bonjava.Validation.valid;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+public class ValidationTest {
+    @Test
+    public void validIsValid() {
+        Validation<String, Integer> validation = valid(1);
+        assertTrue(validation.isValid());
+        assertFalse(validation.isInvalid());
+        assertEquals(Integer.valueOf(1), validation.value());
+        assertTrue(validation.errors().isEmpty());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void invalidHasNoValue() {
+        Validation<String, Integer> validation = invalid("fail");
+        assertTrue(validation.isInvalid());
+        validation.value();
+    }
+
+    @Test
+    public void combineKeepsAllErrorsInOrder() {
+        Validation<String, Tuple.Tuple4<Integer, String, Integer, String>> combined = Validation.combine(
+                valid(1),
+                Validation.<String, String>invalid("second"),
+                Validation.<String, Integer>invalid("third"),
+                Validation.<String, String>invalid(Validation.Errors.of("fourth").append("fifth")));
+        assertEquals(Arrays.asList("second", "third", "fourth", "fifth"), combined.errors().toList());
+    }
+
+    @Test
+    public void combineBuildsTuple() {
+        Validation<String, Tuple.Tuple3<Integer, String, Boolean>> combined = Validation.combine(
+                valid(1),
+                valid("two"),
+                valid(true));
+        assertEquals(Tuple.of(1, "two", true), combined.value());
+    }
+
+    @Test
+    public void canCombineTen() {
+        Validation<String, Tuple.Tuple10<Integer, Integer, Integer, Integer, Integer, Integer, Integer, Integer, Integer, Integer>> combined =
+                Validation.combine(valid(1), valid(2), valid(3), valid(4), valid(5), valid(6), valid(7), valid(8), valid(9), valid(10));
+        assertEquals(Tuple.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), combined.value());
+    }
+
+    @Test
+    public void sequenceKeepsAllErrors() {
+        List<Validation<String, Integer>> validations = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for(int i = 0; i < 100_000; i++) {
+            if(i % 2 == 0) {
+                validations.add(valid(i));
+            }
+            else {
+                validations.add(invalid("error " + i));
+                expected.add("error " + i);
+            }
+        }
+        Validation<String, List<Integer>> sequenced = Validation.sequence(validations);
+        assertEquals(50_000, sequenced.errors().size());
+        assertEquals(expected, sequenced.errors().toList());
+    }
+
+    @Test
+    public void sequenceCollectsValues() {
+        assertEquals(Arrays.asList(1, 2, 3), Validation.sequence(Arrays.asList(
+                Validation.<String, Integer>valid(1),
+                valid(2),
+                valid(3))).value());
+    }
+
+    @Test
+    public void canConvertToAndFromEither() {
+        Validation<String, Integer> validation = Validation.combine(
+                Validation.<String, Integer>invalid("first"),
+                Validation.<String, Integer>invalid("second"))
+                .map(t -> t.v1 + t.v2);
+        Either<List<String>, Integer> either = validation.toEither();
+        assertEquals(Arrays.asList("first", "second"), either.leftValue());
+        assertEquals(Arrays.asList("first", "second"), Validation.fromEitherOfAll(either).errors().toList());
+
+        assertEquals(Integer.valueOf(1), Validation.<String, Integer>fromEither(Either.right(1)).toEither().rightValue());
+        assertEquals(Arrays.asList("fail"), Validation.<String, Integer>fromEither(Either.left("fail")).toEither().leftValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidNeedsErrors() {
+        Validation.fromEitherOfAll(Either.left(new ArrayList<String>()));
+    }
+
+    @Test
+    public void canMapAndFold() {
+        Validation<String, Integer> valid = valid(2);
+        Validation<String, Integer> invalid = invalid("fail");
+        assertEquals(Integer.valueOf(4), valid.map(v -> v * 2).value());
+        assertEquals(Arrays.asList(4), invalid.mapErrors(String::length).errors().toList());
+        assertEquals("2", valid.fold(Validation.Errors::toString, String::valueOf));
+        assertEquals("[fail]", invalid.fold(Validation.Errors::toString, String::valueOf));
+        assertEquals(Arrays.asList("too small"), valid.flatMap(v -> v > 2 ? valid(v) : invalid("too small")).errors().toList());
+    }
+}
@@ -3,11 +3,15 @@ package io.github.jebl01.bonjava.matching;
 import static io.github.jebl01.bonjava.matching.MatchingFunction.*;
 import static io.github.jebl01.bonjava.matching.MatchingFunction._case;
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotSame;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
 
 import io.github.jebl01.bonjava.Either;
 import io.github.jebl01.bonjava.Tuple;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.function.Function;
 
 import org.junit.Test;
@@ -164,4 +168,35 @@ public class MatchingFunctionTest {
         assertEquals("left int 1", f.apply(leftInt1));
         assertEquals("left int 2", f.apply(leftInt2));
     }
+
+    @Test
+    public void stacklessNoMatchIsShared() {
+        final Function<Object, String> f = MatchingFunction.<Object, String>match_(true, Arrays.asList(_case(String.class, s -> s)));
+        final MatchingException noMatch = noMatch(f, 1);
+        assertSame(noMatch, noMatch(f, 2));
+        assertEquals(0, noMatch.getStackTrace().length);
+
+        final IOException cause = new IOException();
+        final MatchingException causedNoMatch = noMatch(f, cause);
+        assertSame(cause, causedNoMatch.getCause());
+        assertEquals(0, causedNoMatch.getStackTrace().length);
+    }
+
+    @Test
+    public void noMatchHasStackTraceUnlessStackless() {
+        final Function<Object, String> f = MatchingFunction.<Object, String>match_(false, Arrays.asList(_case(String.class, s -> s)));
+        final MatchingException noMatch = noMatch(f, 1);
+        assertNotSame(noMatch, noMatch(f, 2));
+        assertTrue(noMatch.getStackTrace().length > 0);
+    }
+
+    private static MatchingException noMatch(Function<Object, String> f, Object value) {
+        try {
+            f.apply(value);
+        }
+        catch(MatchingException e) {
+            return e;
+        }
+        throw new AssertionError("matched " + value);
+    }
 }
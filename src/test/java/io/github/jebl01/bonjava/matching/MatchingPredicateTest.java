@@ -2,6 +2,9 @@ package io.github.jebl01.bonjava.matching;
 
 import static io.github.jebl01.bonjava.matching.MatchingPredicate.*;
 import static io.github.jebl01.bonjava.matching.MatchingPredicate._case;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotSame;
+import static junit.framework.TestCase.assertSame;
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertFalse;
 
@@ -9,6 +12,7 @@ import io.github.jebl01.bonjava.Either;
 
 import java.io.IOException;
 import java.nio.file.AccessDeniedException;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.function.Predicate;
 
@@ -142,4 +146,35 @@ public class MatchingPredicateTest {
         assertTrue(p.test(Either.left(1)));
         assertFalse(p.test(Either.left(2)));
     }
+
+    @Test
+    public void stacklessNoMatchIsShared() {
+        final Predicate<Object> f = MatchingPredicate.<Object>match_(true, Arrays.asList(_case(String.class, s -> true)));
+        final MatchingException noMatch = noMatch(f, 1);
+        assertSame(noMatch, noMatch(f, 2));
+        assertEquals(0, noMatch.getStackTrace().length);
+
+        final IOException cause = new IOException();
+        final MatchingException causedNoMatch = noMatch(f, cause);
+        assertSame(cause, causedNoMatch.getCause());
+        assertEquals(0, causedNoMatch.getStackTrace().length);
+    }
+
+    @Test
+    public void noMatchHasStackTraceUnlessStackless() {
+        final Predicate<Object> f = MatchingPredicate.<Object>match_(false, Arrays.asList(_case(String.class, s -> true)));
+        final MatchingException noMatch = noMatch(f, 1);
+        assertNotSame(noMatch, noMatch(f, 2));
+        assertTrue(noMatch.getStackTrace().length > 0);
+    }
+
+    private static MatchingException noMatch(Predicate<Object> f, Object value) {
+        try {
+            f.test(value);
+        }
+        catch(MatchingException e) {
+            return e;
+        }
+        throw new AssertionError("matched " + value);
+    }
 }